@@ -0,0 +1,149 @@
+package cn.com.kevin.benchmark;
+
+import cn.com.kevin.Config;
+import cn.com.kevin.Start;
+import cn.com.kevin.connector.InMemoryExchange;
+import cn.com.kevin.connector.InProcessClient;
+import cn.com.kevin.engine.ServletContextImpl;
+import ch.qos.logback.classic.Level;
+import org.apache.commons.cli.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+
+/**
+ * Measure bytes allocated per request of the load-test scenarios, processed
+ * by InProcessClient, and fail (exit code 1) if any scenario
+ * allocates more than baseline plus tolerance. Run by "mvn verify", skipped
+ * by -Dallocation.skip, and the baseline is rewritten by --update.
+ *
+ * Server logging is set to warn, so only allocations of the engine and the
+ * benchmark servlets are measured.
+ *
+ * Benchmark tools are compiled as test sources from src/benchmark/java, so
+ * they are not packaged. Run with the test classpath:
+ *
+ * <pre>
+ * mvn test-compile dependency:build-classpath -Dmdep.outputFile=cp.txt
+ * java -cp target/classes:target/test-classes:$(cat cp.txt) cn.com.kevin.benchmark.AllocationGate --baseline allocation-baseline.properties [--update]
+ * </pre>
+ */
+public class AllocationGate {
+
+    // absolute slack, so noise of small scenarios (e.g. JIT decisions) does not fail the build:
+    static final long SLACK_BYTES = 512;
+
+    static final InetSocketAddress ADDRESS = new InetSocketAddress("127.0.0.1", 8080);
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder().longOpt("baseline").argName("file").hasArg().desc("baseline of bytes per request.").required().build());
+        options.addOption(Option.builder().longOpt("tolerance").argName("percent").hasArg().desc("allowed regression, default to 10.").build());
+        options.addOption(Option.builder().longOpt("requests").argName("n").hasArg().desc("measured requests per scenario, default to 10000.").build());
+        options.addOption(Option.builder().longOpt("update").desc("write measured values as new baseline.").build());
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -cp ... " + AllocationGate.class.getName() + " [options]", options);
+            System.exit(1);
+            return;
+        }
+        Path baselineFile = Path.of(cmd.getOptionValue("baseline"));
+        double tolerance = Double.parseDouble(cmd.getOptionValue("tolerance", "10")) / 100;
+        int requests = Integer.parseInt(cmd.getOptionValue("requests", "10000"));
+
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME)).setLevel(Level.WARN);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        if (!threadBean.isThreadAllocatedMemorySupported()) {
+            System.out.println("Thread allocated memory is not supported by this JVM, skip allocation gate.");
+            return;
+        }
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        Config config = new Start().readConfig(null);
+        config.server.webApp.fileListings = true;
+        Path webRoot = LoadTest.createWebRoot();
+        ServletContextImpl servletContext = new ServletContextImpl(AllocationGate.class.getClassLoader(), config, webRoot.toString());
+        Thread.currentThread().setContextClassLoader(AllocationGate.class.getClassLoader());
+        InProcessClient client = new InProcessClient(config, servletContext, ADDRESS);
+        Map<String, Long> measured = new TreeMap<>();
+        try {
+            servletContext.initialize(LoadTest.SERVLETS);
+            for (LoadTest.Scenario scenario : LoadTest.SCENARIOS) {
+                Map<String, List<String>> headers = scenario.contentType() == null ? Map.of()
+                        : Map.of("Content-Type", List.of(scenario.contentType()));
+                byte[] body = scenario.body() == null ? null : scenario.body().getBytes(StandardCharsets.UTF_8);
+                if (scenario.name().equals("session")) {
+                    // send session cookie like a browser:
+                    InMemoryExchange first = client.execute(scenario.method(), scenario.path(), headers, body);
+                    String cookie = first.getResponseHeaders().getFirst("Set-Cookie");
+                    headers = Map.of("Cookie", List.of(cookie.substring(0, cookie.indexOf(';'))));
+                }
+                // warm up, so JIT (and escape analysis) is applied as in a long running server:
+                for (int i = 0; i < requests * 2; i++) {
+                    client.execute(scenario.method(), scenario.path(), headers, body);
+                }
+                long start = threadBean.getCurrentThreadAllocatedBytes();
+                for (int i = 0; i < requests; i++) {
+                    client.execute(scenario.method(), scenario.path(), headers, body);
+                }
+                measured.put(scenario.name(), (threadBean.getCurrentThreadAllocatedBytes() - start) / requests);
+            }
+        } finally {
+            servletContext.destroy();
+            LoadTest.deleteDir(webRoot);
+        }
+
+        if (cmd.hasOption("update")) {
+            // sorted and without date, so the file only changes when values change:
+            StringBuilder sb = new StringBuilder(256);
+            sb.append("# bytes allocated per request, updated by AllocationGate --update\n");
+            measured.forEach((name, bytes) -> sb.append(name).append('=').append(bytes).append('\n'));
+            Files.writeString(baselineFile, sb.toString(), StandardCharsets.ISO_8859_1);
+            measured.forEach((name, bytes) -> System.out.printf("%-10s %8d bytes/request%n", name, bytes));
+            System.out.println("Baseline updated: " + baselineFile);
+            return;
+        }
+
+        Properties baseline = new Properties();
+        if (Files.isRegularFile(baselineFile)) {
+            try (InputStream input = Files.newInputStream(baselineFile)) {
+                baseline.load(input);
+            }
+        }
+        boolean failed = false;
+        System.out.printf("%-10s %10s %10s %8s%n", "scenario", "baseline", "measured", "change");
+        for (Map.Entry<String, Long> entry : measured.entrySet()) {
+            String value = baseline.getProperty(entry.getKey());
+            if (value == null) {
+                System.out.printf("%-10s %10s %10d %8s  (no baseline)%n", entry.getKey(), "-", entry.getValue(), "-");
+                continue;
+            }
+            long expected = Long.parseLong(value.strip());
+            double change = expected == 0 ? 0 : (double) (entry.getValue() - expected) / expected;
+            String status = "";
+            if (entry.getValue() > expected * (1 + tolerance) + SLACK_BYTES) {
+                status = "  REGRESSION";
+                failed = true;
+            } else if (entry.getValue() < expected * (1 - tolerance) - SLACK_BYTES) {
+                status = "  improved, update baseline by --update";
+            }
+            System.out.printf("%-10s %10d %10d %+7.1f%%%s%n", entry.getKey(), expected, entry.getValue(), change * 100, status);
+        }
+        if (failed) {
+            System.out.printf("Allocation per request regressed more than %.0f%% of %s.%n", tolerance * 100, baselineFile);
+            System.exit(1);
+        }
+    }
+}
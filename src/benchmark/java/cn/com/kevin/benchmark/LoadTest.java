@@ -0,0 +1,254 @@
+package cn.com.kevin.benchmark;
+
+import cn.com.kevin.Config;
+import cn.com.kevin.Start;
+import cn.com.kevin.benchmark.webapp.FormServlet;
+import cn.com.kevin.benchmark.webapp.JsonServlet;
+import cn.com.kevin.benchmark.webapp.PlaintextServlet;
+import cn.com.kevin.benchmark.webapp.SessionServlet;
+import cn.com.kevin.connector.HttpConnector;
+import cn.com.kevin.utils.LatencyHistogram;
+import ch.qos.logback.classic.Level;
+import org.apache.commons.cli.*;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+
+/**
+ * Boot server on localhost with benchmark servlets and static files, then run
+ * each scenario with closed-loop load (fixed connections sending back to
+ * back) and open-loop load (fixed request rate), and print throughput and
+ * latency percentiles.
+ *
+ * Closed-loop latencies are also reported with coordinated omission
+ * corrected ("closed-co"), using the median latency of warm-up as expected
+ * interval. Open-loop latencies are measured from scheduled time.
+ *
+ * <pre>
+ * java -cp ... cn.com.kevin.benchmark.LoadTest --scenarios plaintext,json --connections 32 --rate 2000 --duration 20
+ * </pre>
+ */
+public class LoadTest {
+
+    record Scenario(String name, String method, String path, String contentType, String body) {
+    }
+
+    static final List<Scenario> SCENARIOS = List.of(
+            new Scenario("plaintext", "GET", "/plaintext", null, null),
+            new Scenario("json", "GET", "/json", null, null),
+            new Scenario("static", "GET", "/static/index.html", null, null),
+            new Scenario("session", "GET", "/session", null, null),
+            new Scenario("form", "POST", "/form", "application/x-www-form-urlencoded",
+                    "name=Jerry+Mouse&email=jerry%40example.com&subject=Hello&message=Lorem+ipsum+dolor+sit+amet&tags=a&tags=b"));
+
+    static final List<Class<?>> SERVLETS = List.of(PlaintextServlet.class, JsonServlet.class, SessionServlet.class,
+            FormServlet.class);
+
+    record Result(String scenario, String mode, long requests, long errors, double seconds, LatencyHistogram histogram) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder("c").longOpt("config").argName("file").hasArg().desc("specify external configuration file.").build());
+        options.addOption(Option.builder().longOpt("scenarios").argName("names").hasArg()
+                .desc("comma separated scenarios, default to plaintext,json,static,session,form.").build());
+        options.addOption(Option.builder().longOpt("mode").argName("mode").hasArg().desc("closed, open or both (default).").build());
+        options.addOption(Option.builder().longOpt("connections").argName("n").hasArg().desc("concurrent connections, default to 16.").build());
+        options.addOption(Option.builder().longOpt("rate").argName("n").hasArg().desc("requests per second of open-loop, default to 1000.").build());
+        options.addOption(Option.builder().longOpt("duration").argName("seconds").hasArg().desc("seconds of each run, default to 10.").build());
+        options.addOption(Option.builder().longOpt("warmup").argName("seconds").hasArg().desc("seconds of warm-up per scenario, default to 5.").build());
+        options.addOption(Option.builder().longOpt("log-level").argName("level").hasArg().desc("server log level, default to warn.").build());
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -cp ... " + LoadTest.class.getName() + " [options]", options);
+            System.exit(1);
+            return;
+        }
+        List<Scenario> scenarios = new ArrayList<>();
+        for (String name : cmd.getOptionValue("scenarios", "plaintext,json,static,session,form").split(",")) {
+            scenarios.add(SCENARIOS.stream().filter(s -> s.name.equals(name.strip())).findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown scenario: " + name)));
+        }
+        String mode = cmd.getOptionValue("mode", "both");
+        int connections = Integer.parseInt(cmd.getOptionValue("connections", "16"));
+        double rate = Double.parseDouble(cmd.getOptionValue("rate", "1000"));
+        int duration = Integer.parseInt(cmd.getOptionValue("duration", "10"));
+        int warmup = Integer.parseInt(cmd.getOptionValue("warmup", "5"));
+
+        // logging every request would dominate the result:
+        ((ch.qos.logback.classic.Logger) LoggerFactory.getLogger(org.slf4j.Logger.ROOT_LOGGER_NAME))
+                .setLevel(Level.toLevel(cmd.getOptionValue("log-level", "warn")));
+
+        Start start = new Start();
+        Config config = start.readConfig(cmd.getOptionValue("config"));
+        config.server.host = "127.0.0.1";
+        config.server.port = 0;
+        config.server.webApp.fileListings = true;
+        config.server.capture.file = "";
+        config.server.warmUp.file = "";
+        Path webRoot = createWebRoot();
+        List<Result> results = new ArrayList<>();
+        try (HttpConnector connector = new HttpConnector(config, webRoot.toString(), Start.createExecutor(config),
+                LoadTest.class.getClassLoader(), SERVLETS)) {
+            String base = "http://127.0.0.1:" + connector.getAddress().getPort();
+            for (Scenario scenario : scenarios) {
+                HttpRequest request = toRequest(base, scenario);
+                System.out.printf("%s: warm up %d s...%n", scenario.name, warmup);
+                Result warm = closedLoop(scenario, request, connections, warmup);
+                long expectedInterval = warm.histogram.getPercentile(50);
+                if (!mode.equals("open")) {
+                    System.out.printf("%s: closed-loop with %d connections for %d s...%n", scenario.name, connections, duration);
+                    Result closed = closedLoop(scenario, request, connections, duration);
+                    results.add(closed);
+                    results.add(new Result(scenario.name, "closed-co", closed.requests, closed.errors, closed.seconds,
+                            closed.histogram.copyCorrected(expectedInterval)));
+                }
+                if (!mode.equals("closed")) {
+                    System.out.printf("%s: open-loop at %.0f requests/s for %d s...%n", scenario.name, rate, duration);
+                    results.add(openLoop(scenario, request, connections, rate, duration));
+                }
+            }
+        } finally {
+            deleteDir(webRoot);
+        }
+
+        System.out.printf("%n%-10s %-9s %9s %7s %10s %9s %9s %9s %9s %9s%n", "scenario", "mode", "requests", "errors",
+                "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Result r : results) {
+            LatencyHistogram h = r.histogram;
+            System.out.printf("%-10s %-9s %9d %7d %10.1f %9.3f %9.3f %9.3f %9.3f %9.3f%n", r.scenario, r.mode, r.requests,
+                    r.errors, r.requests / r.seconds, h.getPercentile(50) / 1000.0, h.getPercentile(90) / 1000.0,
+                    h.getPercentile(99) / 1000.0, h.getPercentile(99.9) / 1000.0, h.getMax() / 1000.0);
+        }
+        System.exit(0);
+    }
+
+    static Result closedLoop(Scenario scenario, HttpRequest request, int connections, int seconds) throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong requests = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Thread t = new Thread(() -> {
+                HttpClient client = newClient();
+                long begin;
+                while ((begin = System.nanoTime()) < deadline) {
+                    if (!send(client, request)) {
+                        errors.incrementAndGet();
+                    }
+                    histogram.recordNanos(System.nanoTime() - begin);
+                    requests.incrementAndGet();
+                }
+            }, "load-" + (i + 1));
+            t.start();
+            workers.add(t);
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        return new Result(scenario.name, "closed", requests.get(), errors.get(), (System.nanoTime() - start) / 1e9, histogram);
+    }
+
+    static Result openLoop(Scenario scenario, HttpRequest request, int connections, double rate, int seconds)
+            throws InterruptedException {
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong counter = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = (long) (1_000_000_000 / rate);
+        long start = System.nanoTime();
+        long deadline = start + seconds * 1_000_000_000L;
+        List<Thread> workers = new ArrayList<>(connections);
+        for (int i = 0; i < connections; i++) {
+            Thread t = new Thread(() -> {
+                HttpClient client = newClient();
+                for (;;) {
+                    long scheduled = start + counter.getAndIncrement() * intervalNanos;
+                    if (scheduled >= deadline) {
+                        break;
+                    }
+                    long wait;
+                    while ((wait = scheduled - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    if (!send(client, request)) {
+                        errors.incrementAndGet();
+                    }
+                    // measured from scheduled time, so waiting for a busy connection is counted:
+                    histogram.recordNanos(System.nanoTime() - scheduled);
+                }
+            }, "load-" + (i + 1));
+            t.start();
+            workers.add(t);
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        return new Result(scenario.name, "open", histogram.getCount(), errors.get(), (System.nanoTime() - start) / 1e9, histogram);
+    }
+
+    // one client per connection, each with its own cookies (session):
+    static HttpClient newClient() {
+        return HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).cookieHandler(new CookieManager()).build();
+    }
+
+    static HttpRequest toRequest(String base, Scenario scenario) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + scenario.path));
+        if (scenario.contentType != null) {
+            builder.header("Content-Type", scenario.contentType);
+        }
+        builder.method(scenario.method, scenario.body == null ? HttpRequest.BodyPublishers.noBody()
+                : HttpRequest.BodyPublishers.ofString(scenario.body, StandardCharsets.UTF_8));
+        return builder.build();
+    }
+
+    static boolean send(HttpClient client, HttpRequest request) {
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() < 400;
+        } catch (IOException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    static Path createWebRoot() throws IOException {
+        Path root = Files.createTempDirectory("jm-load-test");
+        Path dir = Files.createDirectories(root.resolve("static"));
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append("<!DOCTYPE html>\n<html><head><title>Benchmark</title></head><body>\n");
+        while (sb.length() < 4000) {
+            sb.append("<p>Lorem ipsum dolor sit amet, consectetur adipiscing elit.</p>\n");
+        }
+        sb.append("</body></html>\n");
+        Files.writeString(dir.resolve("index.html"), sb.toString());
+        return root;
+    }
+
+    static void deleteDir(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path p : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(p);
+            }
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package cn.com.kevin.benchmark;
+
+import cn.com.kevin.Config;
+import cn.com.kevin.Start;
+import cn.com.kevin.connector.HttpConnector;
+import cn.com.kevin.connector.RecordedRequest;
+import cn.com.kevin.utils.LatencyHistogram;
+import org.apache.commons.cli.*;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Replay recorded requests (captured by server.capture) at a target rate,
+ * against a running server by --url, or in-process against the web app by
+ * --war, and print latency percentiles.
+ *
+ * Latency of a request is measured from its scheduled time when --rate is
+ * set, so a stalled server is not hidden by delayed sending.
+ *
+ * <pre>
+ * java -cp ... cn.com.kevin.benchmark.Replay -f requests.rec --url http://127.0.0.1:8080 --rate 500 --duration 30
+ * java -cp ... cn.com.kevin.benchmark.Replay -f requests.rec -w app.war --requests 100000
+ * </pre>
+ */
+public class Replay {
+
+    // headers set by HttpClient itself:
+    static final Set<String> SKIP_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade", "transfer-encoding");
+
+    interface Sender {
+        // return response code:
+        int send(RecordedRequest request) throws Exception;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder("f").longOpt("file").argName("file").hasArg().desc("recorded requests file.").required().build());
+        options.addOption(Option.builder().longOpt("url").argName("url").hasArg().desc("base URL of running server, e.g. http://127.0.0.1:8080").build());
+        options.addOption(Option.builder("w").longOpt("war").argName("file").hasArg().desc("replay in-process against war file or dir.").build());
+        options.addOption(Option.builder("c").longOpt("config").argName("file").hasArg().desc("external configuration file for --war.").build());
+        options.addOption(Option.builder().longOpt("rate").argName("n").hasArg().desc("requests per second, default to 0 = as fast as possible.").build());
+        options.addOption(Option.builder().longOpt("requests").argName("n").hasArg().desc("total requests, default to number of recorded requests.").build());
+        options.addOption(Option.builder().longOpt("duration").argName("seconds").hasArg().desc("max seconds to run, default to 0 = no limit.").build());
+        options.addOption(Option.builder().longOpt("threads").argName("n").hasArg().desc("concurrent requests, default to 8.").build());
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+            if (cmd.hasOption("url") == cmd.hasOption("war")) {
+                throw new ParseException("Specify either --url or --war.");
+            }
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -cp ... " + Replay.class.getName() + " [options]", options);
+            System.exit(1);
+            return;
+        }
+        List<RecordedRequest> requests = RecordedRequest.readAll(Path.of(cmd.getOptionValue("file")));
+        if (requests.isEmpty()) {
+            System.err.println("No request in file.");
+            System.exit(1);
+        }
+        double rate = Double.parseDouble(cmd.getOptionValue("rate", "0"));
+        long total = Long.parseLong(cmd.getOptionValue("requests", String.valueOf(requests.size())));
+        long duration = Long.parseLong(cmd.getOptionValue("duration", "0"));
+        int threads = Integer.parseInt(cmd.getOptionValue("threads", "8"));
+
+        HttpConnector connector = null;
+        Sender sender;
+        if (cmd.hasOption("url")) {
+            sender = httpSender(cmd.getOptionValue("url"));
+        } else {
+            Start start = new Start();
+            Config config = start.readConfig(cmd.getOptionValue("config"));
+            // listen on any free port, and do not capture replayed requests:
+            config.server.port = 0;
+            config.server.capture.file = "";
+            connector = start.createConnector(Path.of(cmd.getOptionValue("war")).toAbsolutePath().normalize(), config,
+                    Executors.newFixedThreadPool(2));
+            sender = inProcessSender(connector);
+        }
+
+        LatencyHistogram histogram = new LatencyHistogram();
+        AtomicLong counter = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        long intervalNanos = rate > 0 ? (long) (1_000_000_000 / rate) : 0;
+        long startNanos = System.nanoTime();
+        long deadline = duration > 0 ? startNanos + duration * 1_000_000_000L : Long.MAX_VALUE;
+        final Sender s = sender;
+        final ClassLoader classLoader = connector == null ? null : connector.getClassLoader();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                long n;
+                while ((n = counter.getAndIncrement()) < total) {
+                    long scheduled = startNanos + n * intervalNanos;
+                    if (scheduled >= deadline) {
+                        break;
+                    }
+                    long wait;
+                    while ((wait = scheduled - System.nanoTime()) > 0) {
+                        LockSupport.parkNanos(wait);
+                    }
+                    long begin = intervalNanos > 0 ? scheduled : System.nanoTime();
+                    if (begin >= deadline) {
+                        break;
+                    }
+                    try {
+                        if (s.send(requests.get((int) (n % requests.size()))) >= 500) {
+                            errors.incrementAndGet();
+                        }
+                    } catch (Exception e) {
+                        errors.incrementAndGet();
+                    }
+                    histogram.recordNanos(System.nanoTime() - begin);
+                }
+            }, "replay-" + (i + 1));
+            t.setContextClassLoader(classLoader);
+            t.start();
+            workers.add(t);
+        }
+        for (Thread t : workers) {
+            t.join();
+        }
+        long elapsed = System.nanoTime() - startNanos;
+        System.out.printf("%d requests in %.3f s, %.1f requests/s, %d errors%n", histogram.getCount(), elapsed / 1e9,
+                histogram.getCount() * 1e9 / elapsed, errors.get());
+        System.out.println(histogram.summary());
+        if (connector != null) {
+            connector.close();
+        }
+        System.exit(0);
+    }
+
+    static Sender httpSender(String baseUrl) {
+        HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        String base = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        return (request) -> {
+            HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + request.uri()));
+            for (Map.Entry<String, List<String>> entry : request.headers().entrySet()) {
+                if (!SKIP_HEADERS.contains(entry.getKey().toLowerCase())) {
+                    for (String value : entry.getValue()) {
+                        builder.header(entry.getKey(), value);
+                    }
+                }
+            }
+            builder.method(request.method(), request.body().length == 0 ? HttpRequest.BodyPublishers.noBody()
+                    : HttpRequest.BodyPublishers.ofByteArray(request.body()));
+            return client.send(builder.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+        };
+    }
+
+    static Sender inProcessSender(HttpConnector connector) {
+        return (request) -> connector.processInMemory(request).getResponseCode();
+    }
+}
@@ -0,0 +1,142 @@
+package cn.com.kevin.benchmark;
+
+import cn.com.kevin.Start;
+import org.apache.commons.cli.*;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measure time from launching JVM to the first successful response, without
+ * AppCDS, with -XX:SharedArchiveFile, and with Start --cds (which costs an
+ * extra launcher JVM). Runs of each mode are interleaved to reduce noise of
+ * page cache and CPU frequency.
+ *
+ * Class path must contain jars only, because AppCDS does not support non-empty
+ * directories in class path.
+ *
+ * <pre>
+ * java -cp ... cn.com.kevin.benchmark.StartupBenchmark -w app.war --cds app.jsa --runs 10
+ * </pre>
+ */
+public class StartupBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        Options options = new Options();
+        options.addOption(Option.builder("w").longOpt("war").argName("file").hasArg().desc("specify war file.").required().build());
+        options.addOption(Option.builder("c").longOpt("config").argName("file").hasArg().desc("specify external configuration file.").build());
+        options.addOption(Option.builder().longOpt("cds").argName("file").hasArg().desc("AppCDS archive, created by training run if not exist.").required().build());
+        options.addOption(Option.builder().longOpt("runs").argName("n").hasArg().desc("runs of each mode, default to 5.").build());
+        options.addOption(Option.builder().longOpt("url").argName("url").hasArg().desc("first request, default to http://127.0.0.1:8080/").build());
+        CommandLine cmd;
+        try {
+            cmd = new DefaultParser().parse(options, args);
+        } catch (ParseException e) {
+            System.err.println(e.getMessage());
+            new HelpFormatter().printHelp("java -cp ... " + StartupBenchmark.class.getName() + " [options]", options);
+            System.exit(1);
+            return;
+        }
+        List<String> startArgs = new ArrayList<>(List.of("--war", cmd.getOptionValue("war")));
+        if (cmd.hasOption("config")) {
+            startArgs.addAll(List.of("--config", cmd.getOptionValue("config")));
+        }
+        String cds = cmd.getOptionValue("cds");
+        int runs = Integer.parseInt(cmd.getOptionValue("runs", "5"));
+        URL url = new URL(cmd.getOptionValue("url", "http://127.0.0.1:8080/"));
+
+        if (!Files.isRegularFile(Path.of(cds))) {
+            System.out.println("create AppCDS archive " + cds + "...");
+            List<String> train = new ArrayList<>(startArgs);
+            train.addAll(List.of("--cds-train", cds));
+            int exit = launch(List.of(), train, true).waitFor();
+            if (exit != 0 || !Files.isRegularFile(Path.of(cds))) {
+                System.err.println("training run failed: exit code " + exit);
+                System.exit(1);
+            }
+        }
+
+        // appcds = JVM option, launcher = Start --cds which relaunches JVM:
+        List<String> launcherArgs = new ArrayList<>(startArgs);
+        launcherArgs.addAll(List.of("--cds", cds));
+        long[] baseline = new long[runs];
+        long[] appcds = new long[runs];
+        long[] launcher = new long[runs];
+        for (int i = 0; i < runs; i++) {
+            baseline[i] = measure(List.of(), startArgs, url);
+            appcds[i] = measure(List.of("-XX:SharedArchiveFile=" + cds), startArgs, url);
+            launcher[i] = measure(List.of(), launcherArgs, url);
+            System.out.printf("run %d: baseline %d ms, appcds %d ms, launcher %d ms%n", i + 1, baseline[i], appcds[i], launcher[i]);
+        }
+        print("baseline", baseline);
+        print("appcds", appcds);
+        print("launcher", launcher);
+    }
+
+    // return milliseconds from launch to first response:
+    static long measure(List<String> jvmOptions, List<String> startArgs, URL url) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        Process process = launch(jvmOptions, startArgs, false);
+        try {
+            for (;;) {
+                if (!process.isAlive()) {
+                    throw new IOException("Server exited with code " + process.exitValue());
+                }
+                if (request(url)) {
+                    return (System.nanoTime() - start) / 1_000_000;
+                }
+                Thread.sleep(5);
+            }
+        } finally {
+            process.destroy();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly().waitFor();
+            }
+        }
+    }
+
+    static Process launch(List<String> jvmOptions, List<String> startArgs, boolean inheritIO) throws IOException {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Start.class.getName());
+        command.addAll(startArgs);
+        ProcessBuilder pb = new ProcessBuilder(command);
+        if (inheritIO) {
+            pb.inheritIO();
+        } else {
+            pb.redirectErrorStream(true).redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        }
+        return pb.start();
+    }
+
+    static boolean request(URL url) {
+        try {
+            HttpURLConnection conn = (HttpURLConnection) url.openConnection();
+            conn.setConnectTimeout(1000);
+            conn.setRequestProperty("Connection", "close");
+            try (InputStream input = conn.getInputStream()) {
+                input.readAllBytes();
+            }
+            return conn.getResponseCode() == 200;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    static void print(String mode, long[] times) {
+        long[] sorted = times.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-8s min %5d ms, median %5d ms, max %5d ms%n", mode, sorted[0], sorted[sorted.length / 2], sorted[sorted.length - 1]);
+    }
+}
@@ -0,0 +1,26 @@
+package cn.com.kevin.benchmark.webapp;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.Map;
+
+/**
+ * Parse url-encoded form and echo parameters.
+ */
+@WebServlet(urlPatterns = "/form", loadOnStartup = 1)
+public class FormServlet extends HttpServlet {
+
+    @Override
+    protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("text/plain");
+        PrintWriter pw = resp.getWriter();
+        for (Map.Entry<String, String[]> entry : req.getParameterMap().entrySet()) {
+            pw.write(entry.getKey() + "=" + String.join(",", entry.getValue()) + "\n");
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package cn.com.kevin.benchmark.webapp;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@WebServlet(urlPatterns = "/json", loadOnStartup = 1)
+public class JsonServlet extends HttpServlet {
+
+    final ObjectMapper mapper = new ObjectMapper();
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        resp.setContentType("application/json");
+        Map<String, Object> body = Map.of("message", "Hello, World!", "id", 12345, "tags",
+                List.of("jerry", "mouse", "benchmark"));
+        this.mapper.writeValue(resp.getOutputStream(), body);
+    }
+}
@@ -0,0 +1,36 @@
+package cn.com.kevin.benchmark.webapp;
+
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.servlet.http.HttpSession;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Read and write several session attributes per request, like a shopping cart.
+ */
+@WebServlet(urlPatterns = "/session", loadOnStartup = 1)
+public class SessionServlet extends HttpServlet {
+
+    @Override
+    protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+        HttpSession session = req.getSession();
+        Integer count = (Integer) session.getAttribute("count");
+        count = count == null ? 1 : count + 1;
+        session.setAttribute("count", count);
+        @SuppressWarnings("unchecked")
+        List<String> cart = (List<String>) session.getAttribute("cart");
+        if (cart == null || cart.size() >= 20) {
+            cart = new ArrayList<>();
+        }
+        cart.add("item-" + count);
+        session.setAttribute("cart", cart);
+        session.setAttribute("lastVisit", System.currentTimeMillis());
+        resp.setContentType("text/plain");
+        resp.getWriter().write("visits: " + count + ", cart: " + cart.size());
+    }
+}
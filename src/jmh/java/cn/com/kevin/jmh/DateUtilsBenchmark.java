@@ -0,0 +1,41 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.utils.CachedClock;
+import cn.com.kevin.utils.DateUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * HTTP date formatting and parsing, by the methods used by HttpHeaders.
+ * formatCurrentSecond formats the current time as date headers do, so the
+ * cached date is reused. formatNewSecond formats a different past second
+ * every call, so the cached date is never used.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DateUtilsBenchmark {
+
+    long next = 784111777000L;
+    String date = "Sun, 06 Nov 1994 08:49:37 GMT";
+
+    @Benchmark
+    public String formatCurrentSecond() {
+        return DateUtils.formatDateTimeGMT(CachedClock.currentTimeMillis());
+    }
+
+    @Benchmark
+    public String formatNewSecond() {
+        next += 1000;
+        return DateUtils.formatDateTimeGMT(next);
+    }
+
+    @Benchmark
+    public long parse() {
+        return DateUtils.parseDateTimeGMT(date);
+    }
+}
@@ -0,0 +1,101 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.Config;
+import cn.com.kevin.Start;
+import cn.com.kevin.connector.InProcessClient;
+import cn.com.kevin.engine.ServletContextImpl;
+import jakarta.servlet.*;
+import jakarta.servlet.annotation.WebFilter;
+import jakarta.servlet.annotation.WebServlet;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request dispatch by ServletContextImpl.process(): find servlet and filters,
+ * then invoke them with in-memory exchange by InProcessClient.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DispatchBenchmark {
+
+    @Param({ "/api/hello", "/static/app.js" })
+    String uri;
+
+    Config config;
+    ServletContextImpl servletContext;
+    InProcessClient client;
+    InetSocketAddress address = new InetSocketAddress("127.0.0.1", 8080);
+
+    @Setup
+    public void setup() throws IOException {
+        this.config = new Start().readConfig(null);
+        this.config.server.webApp.fileListings = false;
+        this.servletContext = new ServletContextImpl(getClass().getClassLoader(), config,
+                Files.createTempDirectory("jmh").toString());
+        this.servletContext.initialize(List.of(ApiServlet.class, StaticServlet.class, LoginServlet.class, EncodingFilter.class,
+                AuthFilter.class));
+        this.client = new InProcessClient(config, servletContext, address);
+    }
+
+    @TearDown
+    public void tearDown() {
+        this.servletContext.destroy();
+    }
+
+    @Benchmark
+    public int process() throws IOException, ServletException {
+        return client.execute("GET", uri, Map.of(), null).getResponseCode();
+    }
+
+    @WebServlet(urlPatterns = "/api/*", loadOnStartup = 1)
+    public static class ApiServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/plain");
+            resp.getWriter().write("hello");
+        }
+    }
+
+    @WebServlet(urlPatterns = "*.js", loadOnStartup = 1)
+    public static class StaticServlet extends HttpServlet {
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("text/javascript");
+            resp.getWriter().write("console.log(1);");
+        }
+    }
+
+    @WebServlet(urlPatterns = "/login", loadOnStartup = 1)
+    public static class LoginServlet extends HttpServlet {
+    }
+
+    @WebFilter("/*")
+    public static class EncodingFilter implements Filter {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            response.setCharacterEncoding("UTF-8");
+            chain.doFilter(request, response);
+        }
+    }
+
+    @WebFilter("/api/*")
+    public static class AuthFilter implements Filter {
+        @Override
+        public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+            chain.doFilter(request, response);
+        }
+    }
+}
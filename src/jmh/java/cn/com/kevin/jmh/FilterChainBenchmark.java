@@ -0,0 +1,47 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.engine.FilterChainImpl;
+import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServlet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of invoking servlet through a new filter chain per request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FilterChainBenchmark {
+
+    @Param({ "0", "1", "5" })
+    int filterCount;
+
+    Filter[] filters;
+    Servlet servlet;
+
+    @Setup
+    public void setup(Blackhole blackhole) {
+        this.filters = new Filter[filterCount];
+        for (int i = 0; i < filterCount; i++) {
+            this.filters[i] = (request, response, chain) -> chain.doFilter(request, response);
+        }
+        this.servlet = new HttpServlet() {
+            @Override
+            public void service(ServletRequest req, ServletResponse res) {
+                blackhole.consume(req);
+            }
+        };
+    }
+
+    @Benchmark
+    public void doFilter() throws IOException, ServletException {
+        new FilterChainImpl(filters, servlet).doFilter(null, null);
+    }
+}
@@ -0,0 +1,61 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.engine.support.HttpHeaders;
+import com.sun.net.httpserver.Headers;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Header lookups of a typical browser request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpHeadersBenchmark {
+
+    HttpHeaders headers;
+
+    @Setup
+    public void setup() {
+        Headers h = new Headers();
+        h.add("Host", "localhost:8080");
+        h.add("User-Agent", "Mozilla/5.0 (X11; Linux x86_64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/120.0 Safari/537.36");
+        h.add("Accept", "text/html,application/xhtml+xml,application/xml;q=0.9,*/*;q=0.8");
+        h.add("Accept-Language", "zh-CN,zh;q=0.9,en;q=0.8");
+        h.add("Accept-Encoding", "gzip, deflate, br");
+        h.add("Connection", "keep-alive");
+        h.add("Content-Length", "128");
+        h.add("If-Modified-Since", "Sun, 06 Nov 1994 08:49:37 GMT");
+        h.add("Cookie", "JSESSIONID=8f2c1b3a4d5e6f708192a3b4c5d6e7f8");
+        this.headers = new HttpHeaders(h);
+    }
+
+    @Benchmark
+    public String getHeader() {
+        return headers.getHeader("user-agent");
+    }
+
+    @Benchmark
+    public String getMissingHeader() {
+        return headers.getHeader("X-Forwarded-For");
+    }
+
+    @Benchmark
+    public int getIntHeader() {
+        return headers.getIntHeader("Content-Length");
+    }
+
+    @Benchmark
+    public long getDateHeader() {
+        return headers.getDateHeader("If-Modified-Since");
+    }
+
+    @Benchmark
+    public boolean containsHeader() {
+        return headers.containsHeader("Cookie");
+    }
+}
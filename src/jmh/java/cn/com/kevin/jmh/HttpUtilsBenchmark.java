@@ -0,0 +1,35 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.utils.HttpUtils;
+import jakarta.servlet.http.Cookie;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing of query strings and Cookie headers.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class HttpUtilsBenchmark {
+
+    String query = "q=jerry+mouse&page=2&size=20&sort=name%2Casc&tag=a&tag=b";
+    String cookies = "JSESSIONID=8f2c1b3a4d5e6f708192a3b4c5d6e7f8; theme=dark; lang=zh-CN; _ga=GA1.1.123456789.1700000000";
+
+    @Benchmark
+    public Map<String, List<String>> parseQuery() {
+        return HttpUtils.parseQuery(query, StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public Cookie[] parseCookies() {
+        return HttpUtils.parseCookies(cookies);
+    }
+}
@@ -0,0 +1,46 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.engine.mapping.AbstractMapping;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * URL pattern matching of servlet and filter mappings.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MappingBenchmark {
+
+    AbstractMapping exact = new AbstractMapping("/api/users");
+    AbstractMapping prefix = new AbstractMapping("/api/*");
+    AbstractMapping extension = new AbstractMapping("*.do");
+    AbstractMapping all = new AbstractMapping("/");
+
+    String uri = "/api/users";
+    String missUri = "/static/js/app.js";
+
+    @Benchmark
+    public boolean exactMatch() {
+        return exact.matches(uri);
+    }
+
+    @Benchmark
+    public boolean prefixMatch() {
+        return prefix.matches(uri);
+    }
+
+    @Benchmark
+    public boolean extensionMiss() {
+        return extension.matches(missUri);
+    }
+
+    @Benchmark
+    public boolean defaultMatch() {
+        return all.matches(missUri);
+    }
+}
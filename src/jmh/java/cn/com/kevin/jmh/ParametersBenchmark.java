@@ -0,0 +1,42 @@
+package cn.com.kevin.jmh;
+
+import cn.com.kevin.connector.InMemoryExchange;
+import cn.com.kevin.engine.support.Parameters;
+import org.openjdk.jmh.annotations.*;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Request parameters from query string and form body, parsed on first
+ * getParameterMap() of each request.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ParametersBenchmark {
+
+    InetSocketAddress address = new InetSocketAddress("127.0.0.1", 8080);
+    InMemoryExchange get = new InMemoryExchange("GET", URI.create("/search?q=jerry+mouse&page=2&size=20&tag=a&tag=b"),
+            Map.of(), null, address);
+    InMemoryExchange post = new InMemoryExchange("POST", URI.create("/login?next=%2Fhome"),
+            Map.of("Content-Type", List.of("application/x-www-form-urlencoded")),
+            "username=bob&password=p%40ssw0rd&remember=on".getBytes(StandardCharsets.UTF_8), address);
+
+    @Benchmark
+    public Map<String, String[]> queryParameters() {
+        return new Parameters(get, "UTF-8").getParameterMap();
+    }
+
+    @Benchmark
+    public Map<String, String[]> formParameters() {
+        return new Parameters(post, "UTF-8").getParameterMap();
+    }
+}
@@ -16,9 +16,19 @@ public class Config {
         public String mimeDefault;
         public int threadPoolSize;
         public boolean enableVirtualThread;
+        // cached clock resolution in milliseconds:
+        public Integer clockResolution;
+        // write startup timing report as JSON to this file, empty = log only:
+        public String startupReport;
         public Map<String, String> mimeTypes;
         public WebApp webApp;
         public ForwardedHeaders forwardedHeaders;
+        public WarmUp warmUp;
+        public Capture capture;
+        public Metrics metrics;
+        public Profiler profiler;
+        public SlowRequest slowRequest;
+        public Deadline deadline;
     }
 
     public static class WebApp {
@@ -27,6 +37,70 @@ public class Config {
         public String virtualServerName;
         public String sessionCookieName;
         public Integer sessionTimeout;
+        // threads to extract war, scan WEB-INF/classes and WEB-INF/lib, init servlets and filters, 0 = number of CPUs:
+        public Integer scanThreads;
+        // "extract" = extract war to temp dir, "direct" = load classes and resources from war:
+        public String warMode;
+    }
+
+    // replay recorded requests in-process before accepting connections:
+    public static class WarmUp {
+        // file of recorded requests, empty = no warm-up:
+        public String file;
+        // max requests to replay, 0 = no limit:
+        public Integer iterations;
+        // max seconds to replay, 0 = no limit (replay file once if both are 0):
+        public Integer duration;
+        public Integer threads;
+    }
+
+    // sample requests into a recorded requests file:
+    public static class Capture {
+        // file to write, empty = no capture:
+        public String file;
+        // probability to sample a request, e.g. 0.01 = 1%:
+        public Double sampleRate;
+        // requests with larger body are not sampled:
+        public Integer maxBody;
+        // stop capture after written requests:
+        public Integer maxRequests;
+    }
+
+    // runtime metrics in Prometheus text format:
+    public static class Metrics {
+        public Boolean enabled;
+        // internal path served before filters and servlets:
+        public String path;
+    }
+
+    // continuous profiling by JFR event streaming:
+    public static class Profiler {
+        public Boolean enabled;
+        // internal path to get collapsed stacks:
+        public String path;
+        // sampling period in milliseconds:
+        public Integer period;
+        // minutes of samples to keep:
+        public Integer window;
+    }
+
+    // log requests slower than threshold with sampled stacks:
+    public static class SlowRequest {
+        // milliseconds, 0 = disabled:
+        public Integer threshold;
+        // milliseconds between stack samples of a slow request:
+        public Integer sampleInterval;
+        // log still running request after max samples:
+        public Integer maxSamples;
+        public Integer maxLogsPerMinute;
+    }
+
+    // request deadline counted from arrival (including time in queue):
+    public static class Deadline {
+        // milliseconds for mappings not listed, 0 = no deadline:
+        public Integer defaultMillis;
+        // servlet url pattern -> milliseconds, 0 = no deadline:
+        public Map<String, Integer> mappings;
     }
 
     public static class ForwardedHeaders {
@@ -1,9 +1,15 @@
 package cn.com.kevin;
 
+import cn.com.kevin.classloader.ClassFileScanner;
 import cn.com.kevin.classloader.Resource;
+import cn.com.kevin.classloader.ScanIndex;
+import cn.com.kevin.classloader.WarArchive;
 import cn.com.kevin.classloader.WebAppClassLoader;
 import cn.com.kevin.connector.HttpConnector;
+import cn.com.kevin.utils.CachedClock;
 import cn.com.kevin.utils.ClassPathUtils;
+import cn.com.kevin.utils.HashUtils;
+import cn.com.kevin.utils.StartupProfiler;
 import com.fasterxml.jackson.core.JacksonException;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.ObjectMapper;
@@ -20,23 +26,46 @@ import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryNotEmptyException;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
 import java.util.*;
+import java.util.concurrent.Executor;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
-import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.stream.Stream;
 
 public class Start {
-    static Logger logger = LoggerFactory.getLogger(Start.class);
+    // initialized after relaunch check, so a launcher JVM which only relaunches does not start logback:
+    static Logger logger;
+
+    // marker file of completely extracted war in cache dir, content is path of war:
+    static final String EXTRACT_COMPLETED = ".extract-completed";
+    // extracted versions to keep in cache per war path, including the one in use:
+    static final int EXTRACT_CACHE_KEEP = 3;
+    // set by --cds-train in the relaunched JVM:
+    static final String CDS_TRAINING = "jerrymouse.cds.training";
+
+    // exit after server started and served one request:
+    final boolean training = Boolean.getBoolean(CDS_TRAINING);
 
     public static void main(String[] args) throws Exception {
+        StartupProfiler.markMain();
         String warFile = null;
         String customConfigPath = null;
         // Options 是 Commons CLI 中的类
@@ -44,6 +73,11 @@ public class Start {
         Options options = new Options();
         options.addOption(Option.builder("w").longOpt("war").argName("file").hasArg().desc("specify war file.").required().build());
         options.addOption(Option.builder("c").longOpt("config").argName("file").hasArg().desc("specify external configuration file.").build());
+        options.addOption(Option.builder().longOpt("cds").argName("file").hasArg().desc("run with AppCDS archive created by --cds-train.").build());
+        options.addOption(Option.builder().longOpt("cds-train").argName("file").hasArg()
+                .desc("training run: start server, serve one request, then exit and create AppCDS archive.").build());
+        String cdsArchive = null;
+        String cdsTrain = null;
 
         try {
             var parser = new DefaultParser();
@@ -51,6 +85,8 @@ public class Start {
             CommandLine cmd = parser.parse(options, args);
             warFile = cmd.getOptionValue("war");
             customConfigPath = cmd.getOptionValue("config");
+            cdsArchive = cmd.getOptionValue("cds");
+            cdsTrain = cmd.getOptionValue("cds-train");
         } catch (ParseException e) {
             System.err.println(e.getMessage());
             var help = new HelpFormatter();
@@ -60,18 +96,112 @@ public class Start {
             return;
         }
 
+        // AppCDS 只能通过 JVM 参数指定, 因此用新的 JVM 进程重新启动:
+        if (cdsTrain != null) {
+            System.exit(relaunch(List.of("-XX:ArchiveClassesAtExit=" + cdsTrain, "-D" + CDS_TRAINING + "=true"), warFile, customConfigPath));
+        }
+        if (cdsArchive != null && Files.isRegularFile(Path.of(cdsArchive))) {
+            System.exit(relaunch(List.of("-XX:SharedArchiveFile=" + cdsArchive), warFile, customConfigPath));
+        }
+        initLogger();
+        if (cdsArchive != null) {
+            logger.warn("AppCDS archive {} not found, start without it. Create it by --cds-train first.", cdsArchive);
+        }
+
         // 获取war文件路径和自定义配置文件路径后启动
         new Start().start(warFile, customConfigPath);
+        if (Boolean.getBoolean(CDS_TRAINING)) {
+            // archive is written when JVM exits:
+            System.exit(0);
+        }
+    }
+
+    /**
+     * Start server in a new JVM with the same JVM arguments and class path plus
+     * extra JVM options, and wait until it exits.
+     */
+    static int relaunch(List<String> jvmOptions, String warFile, String customConfigPath) throws IOException, InterruptedException {
+        List<String> command = new ArrayList<>();
+        command.add(ProcessHandle.current().info().command().orElse(Path.of(System.getProperty("java.home"), "bin", "java").toString()));
+        command.addAll(ManagementFactory.getRuntimeMXBean().getInputArguments());
+        command.addAll(jvmOptions);
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(Start.class.getName());
+        command.add("--war");
+        command.add(warFile);
+        if (customConfigPath != null) {
+            command.add("--config");
+            command.add(customConfigPath);
+        }
+        Process process = new ProcessBuilder(command).inheritIO().start();
+        // stop server when launcher is stopped:
+        Runtime.getRuntime().addShutdownHook(new Thread(process::destroy));
+        return process.waitFor();
+    }
+
+    public Start() {
+        initLogger();
+    }
+
+    static void initLogger() {
+        if (logger == null) {
+            logger = LoggerFactory.getLogger(Start.class);
+        }
     }
 
     public void start(String warFile, String customConfigPath) throws IOException {
         Path warPath = parseWarFile(warFile);
+        Config config = readConfig(customConfigPath);
 
-        // extract war if necessary:
-        Path[] ps = extractWarIfNecessary(warPath);
+        ExecutorService executor = createExecutor(config);
 
-        String webRoot = ps[0].getParent().getParent().toString();
-        logger.info("set web root: {}", webRoot);
+        try (HttpConnector connector = createConnector(warPath, config, executor)) {
+            String reportFile = config.server.startupReport;
+            StartupProfiler.report(reportFile == null || reportFile.isEmpty() ? null : Path.of(reportFile));
+            if (this.training) {
+                // load classes used by request processing:
+                trainingRequest(config);
+            }
+            while (!this.training) {
+                try {
+                    Thread.sleep(1000);
+                } catch (InterruptedException e) {
+                    break;
+                }
+            }
+        } catch (Exception e) {
+            logger.error(e.getMessage(), e);
+        }
+        logger.info("jerrymouse http server was shutdown.");
+    }
+
+    /**
+     * Create executor of http server.
+     */
+    public static ExecutorService createExecutor(Config config) {
+        if (config.server.enableVirtualThread) {
+            initLogger();
+            logger.info("Virtual thread is enabled.");
+        }
+//        ExecutorService executor = config.server.enableVirtualThread ? Executors.newVirtualThreadPerTaskExecutor()
+//                : new ThreadPoolExecutor(0, config.server.threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+//                new LinkedBlockingQueue<>());
+
+        // 创建线程池
+        return new ThreadPoolExecutor(
+                0,
+                config.server.threadPoolSize,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>());
+    }
+
+    /**
+     * Load default config, overridden by custom config if path is not null.
+     */
+    public Config readConfig(String customConfigPath) {
+        StartupProfiler.Phase configPhase = StartupProfiler.begin("config");
 
         // 默认配置文件路径
         String defaultConfigYaml = ClassPathUtils.readString("/server.yml");
@@ -84,7 +214,7 @@ public class Start {
             } catch (IOException e) {
                 logger.error("Could not read config: " + customConfigPath, e);
                 System.exit(1);
-                return;
+                return null;
             }
         }
 
@@ -113,78 +243,176 @@ public class Start {
             }
         }
 
-        // set classloader:
-        var classLoader = new WebAppClassLoader(ps[0], ps[1]);
+        configPhase.close();
+        return config;
+    }
+
+    /**
+     * Load web app from war file or dir, scan annotated classes, then start
+     * connector.
+     */
+    public HttpConnector createConnector(Path warPath, Config config, Executor executor) throws IOException {
+        // start cached clock:
+        CachedClock.start(config.server.clockResolution);
+
+        // run directly from war if possible, otherwise extract war if necessary:
+        WebAppClassLoader classLoader = null;
+        String webRoot;
+        if ("direct".equals(config.server.webApp.warMode) && Files.isRegularFile(warPath)) {
+            StartupProfiler.Phase openPhase = StartupProfiler.begin("war-open");
+            try {
+                classLoader = new WebAppClassLoader(WarArchive.open(warPath));
+            } catch (IOException e) {
+                logger.warn("could not run directly from war, fallback to extract: {}", e.getMessage());
+            } finally {
+                openPhase.close();
+            }
+        }
+        if (classLoader != null) {
+            webRoot = warPath.toString();
+        } else {
+            Path[] ps;
+            StartupProfiler.Phase extractPhase = StartupProfiler.begin("war-extract");
+            try {
+                ps = extractWarIfNecessary(warPath, startupThreads(config));
+            } finally {
+                extractPhase.close();
+            }
+            webRoot = ps[0].getParent().getParent().toString();
+            // set classloader:
+            StartupProfiler.Phase classLoaderPhase = StartupProfiler.begin("classloader");
+            try {
+                classLoader = new WebAppClassLoader(ps[0], ps[1]);
+            } finally {
+                classLoaderPhase.close();
+            }
+        }
+        logger.info("set web root: {}", webRoot);
+
+        // scan class, reuse scan result of unchanged jars stored in extract cache, named by war path:
+        Path indexFile = extractCacheRoot().resolve(HashUtils.sha256(toWarId(warPath)) + ".scan-index");
+        List<Class<?>> autoScannedClasses;
+        StartupProfiler.Phase scanPhase = StartupProfiler.begin("scan");
+        try {
+            autoScannedClasses = scanClasses(classLoader, config, indexFile);
+        } finally {
+            scanPhase.close();
+        }
 
-        // scan class:
-        Set<Class<?>> classSet = new HashSet<>();
-        Consumer<Resource> handler = (r) -> {
-            if (r.name().endsWith(".class")) {
-                String className = r.name().substring(0, r.name().length() - 6).replace('/', '.');
-                if (className.endsWith("module-info") || className.endsWith("package-info")) {
-                    return;
+        return new HttpConnector(config, webRoot, executor, classLoader, autoScannedClasses);
+    }
+
+    void trainingRequest(Config config) {
+        String host = config.server.host.equals("0.0.0.0") ? "127.0.0.1" : config.server.host;
+        try {
+            HttpURLConnection conn = (HttpURLConnection) new URL("http", host, config.server.port, "/").openConnection();
+            try (InputStream input = conn.getResponseCode() < 400 ? conn.getInputStream() : conn.getErrorStream()) {
+                if (input != null) {
+                    input.readAllBytes();
                 }
-                Class<?> clazz;
+            }
+            logger.info("training request: {}", conn.getResponseCode());
+            conn.disconnect();
+        } catch (IOException e) {
+            logger.warn("training request failed: {}", e.getMessage());
+        }
+    }
+
+    List<Class<?>> scanClasses(WebAppClassLoader classLoader, Config config, Path indexFile) {
+        // 只读取 class 文件字节码检查注解, 不加载没有注解的类:
+        ClassFileScanner scanner = new ClassFileScanner(WebServlet.class, WebFilter.class, WebListener.class);
+        Function<Resource, String> mapper = (r) -> {
+            if (!r.name().endsWith(".class")) {
+                return null;
+            }
+            String className = r.name().substring(0, r.name().length() - 6).replace('/', '.');
+            if (className.endsWith("module-info") || className.endsWith("package-info")) {
+                return null;
+            }
+            try {
+                return scanner.scan(r.readBytes()).isEmpty() ? null : className;
+            } catch (IOException e) {
+                logger.warn("read class '{}' failed: {}", className, e.getMessage());
+            } catch (IllegalArgumentException e) {
+                logger.warn("skip invalid class file '{}': {}", className, e.getMessage());
+            }
+            return null;
+        };
+
+        int scanThreads = startupThreads(config);
+        List<String> classNames = new ArrayList<>();
+        ForkJoinPool pool = new ForkJoinPool(scanThreads);
+        try {
+            long start = System.nanoTime();
+            // WEB-INF/classes is always scanned:
+            classNames.addAll(classLoader.scanClassPath(mapper, pool));
+            ScanIndex index = ScanIndex.load(indexFile);
+            List<Path> libJars = classLoader.getLibJars();
+            index.retainJars(libJars);
+            // keep jar order, null means jar must be scanned:
+            Map<Path, List<String>> jarClasses = new LinkedHashMap<>();
+            List<Path> changedJars = new ArrayList<>();
+            for (Path jar : libJars) {
+                List<String> indexed = null;
                 try {
-                    // JVM 加载类文件
-                    clazz = classLoader.loadClass(className);
-                } catch (ClassNotFoundException e) {
-                    logger.warn("load class '{}' failed: {}: {}", className, e.getClass().getSimpleName(), e.getMessage());
-                    return;
-                } catch (NoClassDefFoundError err) {
-                    logger.error("load class '{}' failed: {}: {}", className, err.getClass().getSimpleName(), err.getMessage());
-                    return;
-                }
-                // 如果是 Servlet 类
-                if (clazz.isAnnotationPresent(WebServlet.class)) {
-                    logger.info("Found @WebServlet: {}", clazz.getName());
-                    classSet.add(clazz);
+                    indexed = index.getClasses(classLoader, jar);
+                } catch (IOException e) {
+                    logger.warn("check jar {} in scan index failed: {}", jar, e.getMessage());
                 }
-                // 如果是 Filter 类
-                if (clazz.isAnnotationPresent(WebFilter.class)) {
-                    logger.info("Found @WebFilter: {}", clazz.getName());
-                    classSet.add(clazz);
+                jarClasses.put(jar, indexed);
+                if (indexed == null) {
+                    changedJars.add(jar);
                 }
-                // 如果是 Listener 类
-                if (clazz.isAnnotationPresent(WebListener.class)) {
-                    logger.info("Found @WebListener: {}", clazz.getName());
-                    classSet.add(clazz);
+            }
+            Map<Path, List<String>> scanned = classLoader.scanJars(changedJars, mapper, pool);
+            for (Path jar : changedJars) {
+                List<String> found = scanned.get(jar);
+                jarClasses.put(jar, found);
+                try {
+                    index.putClasses(classLoader, jar, found);
+                } catch (IOException e) {
+                    logger.warn("add jar {} to scan index failed: {}", jar, e.getMessage());
                 }
             }
-        };
-        classLoader.scanClassPath(handler);
-        classLoader.scanJar(handler);
-        List<Class<?>> autoScannedClasses = new ArrayList<>(classSet);
-
-        // executor:
-        if (config.server.enableVirtualThread) {
-            logger.info("Virtual thread is enabled.");
+            jarClasses.values().forEach(classNames::addAll);
+            index.save(indexFile);
+            logger.info("scan classes by {} threads in {} ms, {} of {} jars reused from index.", scanThreads,
+                    (System.nanoTime() - start) / 1_000_000, libJars.size() - changedJars.size(), libJars.size());
+        } finally {
+            pool.shutdown();
         }
-//        ExecutorService executor = config.server.enableVirtualThread ? Executors.newVirtualThreadPerTaskExecutor()
-//                : new ThreadPoolExecutor(0, config.server.threadPoolSize, 0L, TimeUnit.MILLISECONDS,
-//                new LinkedBlockingQueue<>());
-
-        // 创建线程池
-        ExecutorService executor = new ThreadPoolExecutor(
-                0,
-                config.server.threadPoolSize,
-                0L,
-                TimeUnit.MILLISECONDS,
-                new LinkedBlockingQueue<>());
 
-        try (HttpConnector connector = new HttpConnector(
-                config, webRoot, executor, classLoader, autoScannedClasses)) {
-            for (;;) {
-                try {
-                    Thread.sleep(1000);
-                } catch (InterruptedException e) {
-                    break;
-                }
+        // load annotated classes in scanned order:
+        Set<Class<?>> classSet = new LinkedHashSet<>();
+        for (String className : classNames) {
+            Class<?> clazz;
+            try {
+                // JVM 加载类文件
+                clazz = classLoader.loadClass(className);
+            } catch (ClassNotFoundException e) {
+                logger.warn("load class '{}' failed: {}: {}", className, e.getClass().getSimpleName(), e.getMessage());
+                continue;
+            } catch (NoClassDefFoundError err) {
+                logger.error("load class '{}' failed: {}: {}", className, err.getClass().getSimpleName(), err.getMessage());
+                continue;
+            }
+            // 如果是 Servlet 类
+            if (clazz.isAnnotationPresent(WebServlet.class)) {
+                logger.info("Found @WebServlet: {}", clazz.getName());
+                classSet.add(clazz);
+            }
+            // 如果是 Filter 类
+            if (clazz.isAnnotationPresent(WebFilter.class)) {
+                logger.info("Found @WebFilter: {}", clazz.getName());
+                classSet.add(clazz);
+            }
+            // 如果是 Listener 类
+            if (clazz.isAnnotationPresent(WebListener.class)) {
+                logger.info("Found @WebListener: {}", clazz.getName());
+                classSet.add(clazz);
             }
-        } catch (Exception e) {
-            logger.error(e.getMessage(), e);
         }
-        logger.info("jerrymouse http server was shutdown.");
+        return new ArrayList<>(classSet);
     }
 
     // 读取 yaml 格式配置文件
@@ -195,7 +423,7 @@ public class Start {
     }
 
     // return classes and lib path:
-    Path[] extractWarIfNecessary(Path warPath) throws IOException {
+    Path[] extractWarIfNecessary(Path warPath, int threads) throws IOException {
         if (Files.isDirectory(warPath)) {
             logger.info("war is directy: {}", warPath);
             // resolve方法的主要用途在于连接两个路径
@@ -207,29 +435,8 @@ public class Start {
             Files.createDirectories(libPath);
             return new Path[] { classesPath, libPath };
         }
-        // 如果需要解压缩
-        Path extractPath = createExtractTo();
-        logger.info("extract '{}' to '{}'", warPath, extractPath);
-        // The JarFile class is used to read the contents of a JAR file from any file that can be opened with java.io.RandomAccessFile.
-        JarFile war = new JarFile(warPath.toFile());
-        war.stream().sorted((e1, e2) -> e1.getName().compareTo(e2.getName())).forEach(entry -> {
-            if (!entry.isDirectory()) {
-                Path file = extractPath.resolve(entry.getName());
-                Path dir = file.getParent();
-                if (!Files.isDirectory(dir)) {
-                    try {
-                        Files.createDirectories(dir);
-                    } catch (IOException e) {
-                        throw new UncheckedIOException(e);
-                    }
-                }
-                try (InputStream in = war.getInputStream(entry)) {
-                    Files.copy(in, file);
-                } catch (IOException e) {
-                    throw new UncheckedIOException(e);
-                }
-            }
-        });
+        // 如果需要解压缩, 解压到以 war 的 SHA-256 命名的缓存目录, 同一个 war 再次启动时无需解压:
+        Path extractPath = extractWarToCache(warPath, threads);
         // check WEB-INF/classes and WEB-INF/lib:
         Path classesPath = extractPath.resolve("WEB-INF/classes");
         Path libPath = extractPath.resolve("WEB-INF/lib");
@@ -238,6 +445,141 @@ public class Start {
         return new Path[] { classesPath, libPath };
     }
 
+    /**
+     * Extract war to cache dir "_jm_cache/<sha256 of war>" under temp dir, which
+     * is kept after shutdown. A war is extracted to a temp dir first, and renamed
+     * to cache dir after all entries are written, so an incomplete cache dir is
+     * never used.
+     *
+     * The cache dir is the web root, so files written there by the web app are
+     * kept across restarts and seen by all servers running the same war. Only
+     * the latest EXTRACT_CACHE_KEEP used versions of a war path are kept.
+     */
+    Path extractWarToCache(Path warPath, int threads) throws IOException {
+        long start = System.nanoTime();
+        String hash = HashUtils.sha256(warPath);
+        Path cacheRoot = extractCacheRoot();
+        Path cachePath = cacheRoot.resolve(hash);
+        Path completed = cachePath.resolve(EXTRACT_COMPLETED);
+        if (Files.isRegularFile(completed)) {
+            logger.info("reuse extracted '{}' at '{}', checked in {} ms", warPath, cachePath, (System.nanoTime() - start) / 1_000_000);
+            // last modified time of marker is last used time:
+            try {
+                Files.setLastModifiedTime(completed, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException e) {
+                logger.warn("could not update '{}': {}", completed, e.getMessage());
+            }
+            pruneExtractCache(cacheRoot, warPath, hash);
+            return cachePath;
+        }
+        Path tmp;
+        try {
+            Files.createDirectories(cacheRoot);
+            tmp = Files.createTempDirectory(cacheRoot, hash + ".");
+        } catch (IOException e) {
+            logger.warn("could not create extract cache in '{}', extract to temp dir: {}", cacheRoot, e.getMessage());
+            Path extractPath = createExtractTo();
+            extractWar(warPath, extractPath, threads);
+            return extractPath;
+        }
+        try {
+            extractWar(warPath, tmp, threads);
+            Files.writeString(tmp.resolve(EXTRACT_COMPLETED), toWarId(warPath));
+            Files.move(tmp, cachePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (FileAlreadyExistsException | DirectoryNotEmptyException e) {
+            // extracted by another process at the same time:
+            logger.info("war was extracted to '{}' by another process.", cachePath);
+        } finally {
+            if (Files.exists(tmp)) {
+                deleteDir(tmp);
+            }
+        }
+        if (!Files.isRegularFile(cachePath.resolve(EXTRACT_COMPLETED))) {
+            throw new IOException("Extract war failed: " + cachePath);
+        }
+        pruneExtractCache(cacheRoot, warPath, hash);
+        return cachePath;
+    }
+
+    static Path extractCacheRoot() {
+        return Path.of(System.getProperty("java.io.tmpdir"), "_jm_cache");
+    }
+
+    static String toWarId(Path warPath) {
+        return warPath.toAbsolutePath().normalize().toString();
+    }
+
+    // delete cache dirs of the same war path except the latest used ones:
+    void pruneExtractCache(Path cacheRoot, Path warPath, String currentHash) {
+        String warId = toWarId(warPath);
+        Map<Path, Long> versions = new HashMap<>();
+        try (Stream<Path> stream = Files.list(cacheRoot)) {
+            for (Path dir : stream.toList()) {
+                Path marker = dir.resolve(EXTRACT_COMPLETED);
+                if (!dir.getFileName().toString().equals(currentHash) && Files.isRegularFile(marker)
+                        && warId.equals(Files.readString(marker))) {
+                    versions.put(dir, Files.getLastModifiedTime(marker).toMillis());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("could not list extract cache '{}': {}", cacheRoot, e.getMessage());
+            return;
+        }
+        // the current one is always kept:
+        versions.entrySet().stream().sorted(Map.Entry.<Path, Long>comparingByValue().reversed()).skip(EXTRACT_CACHE_KEEP - 1)
+                .forEach(e -> {
+                    logger.info("delete old extracted '{}' at '{}'", warPath, e.getKey());
+                    try {
+                        // remove marker first, so a partly deleted dir is never reused:
+                        Files.delete(e.getKey().resolve(EXTRACT_COMPLETED));
+                        deleteDir(e.getKey());
+                    } catch (IOException | UncheckedIOException ex) {
+                        logger.warn("could not delete '{}': {}", e.getKey(), ex.getMessage());
+                    }
+                });
+    }
+
+    void extractWar(Path warPath, Path extractPath, int threads) throws IOException {
+        long start = System.nanoTime();
+        logger.info("extract '{}' to '{}'", warPath, extractPath);
+        // The JarFile class is used to read the contents of a JAR file from any file that can be opened with java.io.RandomAccessFile.
+        try (JarFile war = new JarFile(warPath.toFile())) {
+            List<JarEntry> entries = war.stream().filter(entry -> !entry.isDirectory()).toList();
+            // create all dirs first, then copy files in parallel:
+            Set<Path> dirs = new TreeSet<>();
+            for (JarEntry entry : entries) {
+                Path file = extractPath.resolve(entry.getName()).normalize();
+                if (!file.startsWith(extractPath)) {
+                    throw new IOException("Invalid entry in war: " + entry.getName());
+                }
+                dirs.add(file.getParent());
+            }
+            for (Path dir : dirs) {
+                Files.createDirectories(dir);
+            }
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.submit(() -> entries.parallelStream().forEach(entry -> {
+                    try (InputStream in = war.getInputStream(entry)) {
+                        Files.copy(in, extractPath.resolve(entry.getName()));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                })).join();
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            } finally {
+                pool.shutdown();
+            }
+            logger.info("extract {} files by {} threads in {} ms.", entries.size(), threads, (System.nanoTime() - start) / 1_000_000);
+        }
+    }
+
+    // scan-threads = 0 means one thread per CPU:
+    public static int startupThreads(Config config) {
+        return config.server.webApp.scanThreads > 0 ? config.server.webApp.scanThreads : Runtime.getRuntime().availableProcessors();
+    }
+
     Path parseWarFile(String warFile) {
         Path warPath = Path.of(warFile).toAbsolutePath().normalize();
         if (!Files.isRegularFile(warPath) && !Files.isDirectory(warPath)) {
@@ -293,7 +635,7 @@ public class Start {
             Object overrideFieldValue = field.get(override);
             if (overrideFieldValue != null) {
                 Class<?> type = field.getType();
-                if (type == String.class || type.isPrimitive() || Number.class.isAssignableFrom(type)) {
+                if (type == String.class || type == Boolean.class || type.isPrimitive() || Number.class.isAssignableFrom(type)) {
                     // source.xyz = override.xyz:
                     field.set(source, overrideFieldValue);
                 } else if (Map.class.isAssignableFrom(type)) {
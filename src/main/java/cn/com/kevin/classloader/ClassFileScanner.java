@@ -0,0 +1,192 @@
+package cn.com.kevin.classloader;
+
+import java.lang.annotation.Annotation;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Detect class-level annotations from raw class file bytes without loading the
+ * class.
+ *
+ * The constant pool is checked first: if none of the annotation descriptors
+ * appears as a CONSTANT_Utf8, the class cannot be annotated and scanning stops
+ * there. Otherwise fields and methods are skipped and the class-level
+ * RuntimeVisibleAnnotations attribute is read to confirm the annotation.
+ *
+ * See https://docs.oracle.com/javase/specs/jvms/se17/html/jvms-4.html
+ */
+public class ClassFileScanner {
+    static final byte[] RUNTIME_VISIBLE_ANNOTATIONS = "RuntimeVisibleAnnotations".getBytes(StandardCharsets.UTF_8);
+
+    // e.g. "Ljakarta/servlet/annotation/WebServlet;":
+    final byte[][] descriptors;
+    final String[] annotationNames;
+
+    @SafeVarargs
+    public ClassFileScanner(Class<? extends Annotation>... annotations) {
+        this.descriptors = new byte[annotations.length][];
+        this.annotationNames = new String[annotations.length];
+        for (int i = 0; i < annotations.length; i++) {
+            String name = annotations[i].getName();
+            this.annotationNames[i] = name;
+            this.descriptors[i] = ("L" + name.replace('.', '/') + ";").getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Return names of annotations presented on class, or empty list if none.
+     *
+     * @throws IllegalArgumentException if data is not a valid class file.
+     */
+    public List<String> scan(byte[] data) {
+        try {
+            return scan0(data);
+        } catch (ArrayIndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Truncated class file.", e);
+        }
+    }
+
+    List<String> scan0(byte[] data) {
+        if (u4(data, 0) != 0xCAFEBABE) {
+            throw new IllegalArgumentException("Invalid class file magic.");
+        }
+        int count = u2(data, 8);
+        // index of matched descriptor + 1 for each CONSTANT_Utf8:
+        int[] matched = null;
+        int runtimeVisibleAnnotations = -1;
+        int pos = 10;
+        for (int i = 1; i < count; i++) {
+            int tag = data[pos] & 0xff;
+            switch (tag) {
+                case 1 -> {
+                    int len = u2(data, pos + 1);
+                    int n = matchDescriptor(data, pos + 3, len);
+                    if (n >= 0) {
+                        if (matched == null) {
+                            matched = new int[count];
+                        }
+                        matched[i] = n + 1;
+                    } else if (equals(data, pos + 3, len, RUNTIME_VISIBLE_ANNOTATIONS)) {
+                        runtimeVisibleAnnotations = i;
+                    }
+                    pos += 3 + len;
+                }
+                case 7, 8, 16, 19, 20 -> pos += 3;
+                case 15 -> pos += 4;
+                case 3, 4, 9, 10, 11, 12, 17, 18 -> pos += 5;
+                case 5, 6 -> {
+                    // long and double take two entries:
+                    pos += 9;
+                    i++;
+                }
+                default -> throw new IllegalArgumentException("Invalid constant pool tag: " + tag);
+            }
+        }
+        if (matched == null || runtimeVisibleAnnotations == -1) {
+            return List.of();
+        }
+        // skip access_flags, this_class, super_class:
+        pos += 6;
+        int interfaces = u2(data, pos);
+        pos += 2 + interfaces * 2;
+        // skip fields and methods:
+        for (int k = 0; k < 2; k++) {
+            int members = u2(data, pos);
+            pos += 2;
+            for (int m = 0; m < members; m++) {
+                pos = skipAttributes(data, pos + 6);
+            }
+        }
+        // class attributes:
+        List<String> found = new ArrayList<>(2);
+        int attributes = u2(data, pos);
+        pos += 2;
+        for (int a = 0; a < attributes; a++) {
+            int nameIndex = u2(data, pos);
+            int len = u4(data, pos + 2);
+            pos += 6;
+            if (nameIndex == runtimeVisibleAnnotations) {
+                int annotations = u2(data, pos);
+                int p = pos + 2;
+                for (int n = 0; n < annotations; n++) {
+                    int typeIndex = u2(data, p);
+                    if (matched[typeIndex] > 0) {
+                        found.add(this.annotationNames[matched[typeIndex] - 1]);
+                    }
+                    p = skipAnnotation(data, p);
+                }
+            }
+            pos += len;
+        }
+        return found;
+    }
+
+    int matchDescriptor(byte[] data, int offset, int len) {
+        for (int i = 0; i < this.descriptors.length; i++) {
+            if (equals(data, offset, len, this.descriptors[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    static boolean equals(byte[] data, int offset, int len, byte[] expected) {
+        if (len != expected.length) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            if (data[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // skip attributes_count and attributes, return next offset:
+    static int skipAttributes(byte[] data, int pos) {
+        int count = u2(data, pos);
+        pos += 2;
+        for (int i = 0; i < count; i++) {
+            pos += 6 + u4(data, pos + 2);
+        }
+        return pos;
+    }
+
+    // skip annotation { type_index, num_element_value_pairs, element_value_pairs }:
+    static int skipAnnotation(byte[] data, int pos) {
+        int pairs = u2(data, pos + 2);
+        pos += 4;
+        for (int i = 0; i < pairs; i++) {
+            pos = skipElementValue(data, pos + 2);
+        }
+        return pos;
+    }
+
+    static int skipElementValue(byte[] data, int pos) {
+        char tag = (char) data[pos];
+        pos++;
+        return switch (tag) {
+            case 'B', 'C', 'D', 'F', 'I', 'J', 'S', 'Z', 's', 'c' -> pos + 2;
+            case 'e' -> pos + 4;
+            case '@' -> skipAnnotation(data, pos);
+            case '[' -> {
+                int n = u2(data, pos);
+                pos += 2;
+                for (int i = 0; i < n; i++) {
+                    pos = skipElementValue(data, pos);
+                }
+                yield pos;
+            }
+            default -> throw new IllegalArgumentException("Invalid element value tag: " + tag);
+        };
+    }
+
+    static int u2(byte[] data, int pos) {
+        return ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+    }
+
+    static int u4(byte[] data, int pos) {
+        return ((data[pos] & 0xff) << 24) | ((data[pos + 1] & 0xff) << 16) | ((data[pos + 2] & 0xff) << 8) | (data[pos + 3] & 0xff);
+    }
+}
@@ -1,6 +1,42 @@
 package cn.com.kevin.classloader;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.jar.JarFile;
 
-public record Resource(Path path, String name) {
+/**
+ * Resource found by scanning classes dir or jar. Resource in jar is readable
+ * while the class loader holding the jar file is open, or only while scanning
+ * if the jar is not on its class path. Resource in war (zipEntry is not null)
+ * is always readable.
+ */
+public record Resource(Path path, String name, JarFile jarFile, ZipIndex.Entry zipEntry) {
+    public Resource(Path path, String name) {
+        this(path, name, null, null);
+    }
+
+    public Resource(Path path, String name, JarFile jarFile) {
+        this(path, name, jarFile, null);
+    }
+
+    public InputStream openStream() throws IOException {
+        if (this.zipEntry != null) {
+            return this.zipEntry.openStream();
+        }
+        if (this.jarFile == null) {
+            return Files.newInputStream(this.path);
+        }
+        return this.jarFile.getInputStream(this.jarFile.getJarEntry(this.name));
+    }
+
+    public byte[] readBytes() throws IOException {
+        if (this.zipEntry != null) {
+            return this.zipEntry.readBytes();
+        }
+        try (InputStream input = openStream()) {
+            return input.readAllBytes();
+        }
+    }
 }
@@ -0,0 +1,137 @@
+package cn.com.kevin.classloader;
+
+import cn.com.kevin.utils.HashUtils;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * Persistent result of annotation scanning of WEB-INF/lib, so unchanged jars
+ * are not scanned again on next start.
+ *
+ * A jar is unchanged if its size and last modified time are the same as
+ * indexed, or if its size is the same and its SHA-256 hash matches (e.g. the
+ * jar was extracted again from the same WAR). Jars nested in WAR use size and
+ * time of the WAR entry.
+ */
+public class ScanIndex {
+    static final Logger logger = LoggerFactory.getLogger(ScanIndex.class);
+    static final int VERSION = 1;
+
+    // stored as JSON:
+    public int version = VERSION;
+    public Map<String, JarInfo> jars = new TreeMap<>();
+
+    boolean modified = false;
+
+    public static class JarInfo {
+        public long size;
+        public long lastModified;
+        public String sha256;
+        // annotated class names:
+        public List<String> classes;
+    }
+
+    public static ScanIndex load(Path file) {
+        if (Files.isRegularFile(file)) {
+            try {
+                ScanIndex index = mapper().readValue(file.toFile(), ScanIndex.class);
+                if (index.version == VERSION && index.jars != null) {
+                    logger.info("load scan index {}: {} jars", file, index.jars.size());
+                    return index;
+                }
+                logger.info("ignore scan index {} of version {}", file, index.version);
+            } catch (IOException e) {
+                logger.warn("ignore invalid scan index {}: {}", file, e.getMessage());
+            }
+        }
+        ScanIndex index = new ScanIndex();
+        index.modified = true;
+        return index;
+    }
+
+    public void save(Path file) {
+        if (!this.modified) {
+            return;
+        }
+        Path tmp = null;
+        try {
+            Files.createDirectories(file.getParent());
+            // write to unique temp file then rename, so a crash or a concurrent start never leaves a broken index:
+            tmp = Files.createTempFile(file.getParent(), file.getFileName() + ".", ".tmp");
+            mapper().writeValue(tmp.toFile(), this);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            this.modified = false;
+            logger.info("save scan index {}: {} jars", file, this.jars.size());
+        } catch (IOException e) {
+            logger.warn("save scan index {} failed: {}", file, e.getMessage());
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ex) {
+                    logger.warn("could not delete {}: {}", tmp, ex.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Return indexed classes of jar, or null if jar is not indexed or changed.
+     */
+    public List<String> getClasses(WebAppClassLoader classLoader, Path jarPath) throws IOException {
+        JarInfo info = this.jars.get(jarPath.getFileName().toString());
+        if (info == null || info.classes == null || info.size != classLoader.getJarSize(jarPath)) {
+            return null;
+        }
+        long lastModified = classLoader.getJarLastModified(jarPath);
+        if (info.lastModified != lastModified) {
+            if (!sha256(classLoader, jarPath).equals(info.sha256)) {
+                return null;
+            }
+            info.lastModified = lastModified;
+            this.modified = true;
+        }
+        return info.classes;
+    }
+
+    public void putClasses(WebAppClassLoader classLoader, Path jarPath, List<String> classes) throws IOException {
+        JarInfo info = new JarInfo();
+        info.size = classLoader.getJarSize(jarPath);
+        info.lastModified = classLoader.getJarLastModified(jarPath);
+        info.sha256 = sha256(classLoader, jarPath);
+        info.classes = List.copyOf(classes);
+        this.jars.put(jarPath.getFileName().toString(), info);
+        this.modified = true;
+    }
+
+    /**
+     * Remove jars which no longer exist.
+     */
+    public void retainJars(Collection<Path> jarPaths) {
+        Set<String> names = new HashSet<>();
+        for (Path p : jarPaths) {
+            names.add(p.getFileName().toString());
+        }
+        if (this.jars.keySet().retainAll(names)) {
+            this.modified = true;
+        }
+    }
+
+    static String sha256(WebAppClassLoader classLoader, Path jarPath) throws IOException {
+        try (InputStream input = classLoader.openJar(jarPath)) {
+            return HashUtils.sha256(input);
+        }
+    }
+
+    static ObjectMapper mapper() {
+        return new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    }
+}
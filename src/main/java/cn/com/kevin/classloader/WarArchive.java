@@ -0,0 +1,208 @@
+package cn.com.kevin.classloader;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * WAR file memory-mapped and indexed by its central directory, so classes,
+ * jars in WEB-INF/lib and static resources are read without extraction.
+ *
+ * Nested jars are indexed on first use: a stored jar is a slice of the mapped
+ * WAR, a deflated jar is inflated to heap once and kept. WebAppClassLoader
+ * opens all of them when created, so deflated jars cost their uncompressed
+ * size in heap for the lifetime of the web app; build the war with stored
+ * (uncompressed) jars, e.g. "jar -0", to avoid it.
+ */
+public class WarArchive {
+    static final Logger logger = LoggerFactory.getLogger(WarArchive.class);
+
+    static final String CLASSES = "WEB-INF/classes/";
+    static final String LIB = "WEB-INF/lib/";
+
+    final Path path;
+    final ZipIndex war;
+    // sorted names of nested jars, e.g. "WEB-INF/lib/abc.jar":
+    final List<String> libJarNames;
+    // directory -> sorted names of direct children, e.g. "" -> ["WEB-INF/", "index.html"]:
+    final Map<String, List<String>> directories;
+    final Map<String, ZipIndex> libJars = new ConcurrentHashMap<>();
+    final WarURLStreamHandler urlHandler;
+
+    WarArchive(Path path, ZipIndex war) {
+        this.path = path;
+        this.war = war;
+        List<String> names = new ArrayList<>();
+        for (ZipIndex.Entry entry : war.getEntries()) {
+            String name = entry.getName();
+            if (name.startsWith(LIB) && name.endsWith(".jar") && name.indexOf('/', LIB.length()) == -1) {
+                names.add(name);
+            }
+        }
+        this.libJarNames = List.copyOf(names);
+        this.directories = indexDirectories(war);
+        this.urlHandler = new WarURLStreamHandler(this);
+    }
+
+    // directories are indexed with or without entry of itself:
+    static Map<String, List<String>> indexDirectories(ZipIndex war) {
+        Map<String, Set<String>> dirs = new HashMap<>();
+        dirs.put("", new TreeSet<>());
+        for (ZipIndex.Entry entry : war.getEntries()) {
+            String name = entry.getName();
+            int start = 0;
+            while (start < name.length()) {
+                int n = name.indexOf('/', start);
+                String parent = name.substring(0, start);
+                String child = n == -1 ? name.substring(start) : name.substring(start, n + 1);
+                dirs.computeIfAbsent(parent, k -> new TreeSet<>()).add(child);
+                if (n == -1) {
+                    break;
+                }
+                dirs.computeIfAbsent(name.substring(0, n + 1), k -> new TreeSet<>());
+                start = n + 1;
+            }
+        }
+        Map<String, List<String>> map = new HashMap<>(dirs.size() * 4 / 3 + 1);
+        dirs.forEach((dir, children) -> map.put(dir, List.copyOf(children)));
+        return map;
+    }
+
+    /**
+     * Map and index WAR file.
+     *
+     * @throws IOException if WAR cannot be read directly (e.g. ZIP64), and should be extracted.
+     */
+    public static WarArchive open(Path warPath) throws IOException {
+        long start = System.nanoTime();
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(warPath, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("War file is too large to map: " + warPath);
+            }
+            // mapping is still valid after channel closed:
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        WarArchive archive = new WarArchive(warPath, new ZipIndex("", buffer));
+        logger.info("index war {}: {} entries, {} jars in {} ms", warPath, archive.war.size(), archive.libJarNames.size(),
+                (System.nanoTime() - start) / 1_000_000);
+        return archive;
+    }
+
+    public Path getPath() {
+        return this.path;
+    }
+
+    /**
+     * Get entry of WAR file, e.g. "index.html", or null if not found.
+     */
+    public ZipIndex.Entry getEntry(String name) {
+        return this.war.getEntry(name);
+    }
+
+    /**
+     * Check if name is a directory of WAR file, with or without entry of itself.
+     */
+    public boolean isDirectory(String name) {
+        String dir = name.isEmpty() || name.endsWith("/") ? name : name + "/";
+        return this.directories.containsKey(dir);
+    }
+
+    /**
+     * List direct children of directory, e.g. "" or "static/". Names of sub
+     * directories end with "/".
+     */
+    public List<String> list(String dir) {
+        return this.directories.getOrDefault(dir, List.of());
+    }
+
+    /**
+     * Get entries of WEB-INF/classes, sorted by name.
+     */
+    public List<ZipIndex.Entry> getClassEntries() {
+        List<ZipIndex.Entry> list = new ArrayList<>();
+        for (ZipIndex.Entry entry : this.war.getEntries()) {
+            if (entry.getName().startsWith(CLASSES) && !entry.isDirectory()) {
+                list.add(entry);
+            }
+        }
+        return list;
+    }
+
+    public List<String> getLibJarNames() {
+        return this.libJarNames;
+    }
+
+    /**
+     * Get nested jar by name, e.g. "WEB-INF/lib/abc.jar".
+     */
+    public ZipIndex getLibJar(String name) throws IOException {
+        try {
+            return this.libJars.computeIfAbsent(name, (n) -> {
+                ZipIndex.Entry entry = this.war.getEntry(n);
+                if (entry == null) {
+                    throw new UncheckedIOException(new IOException("Jar not found in war: " + n));
+                }
+                try {
+                    return new ZipIndex(n, entry.getData());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Get URL of entry, e.g. "war:/path/app.war!/WEB-INF/lib/a.jar!/a/b.xml".
+     */
+    public URL toURL(ZipIndex.Entry entry) {
+        return toURL(entry.getZip().getName(), entry.getName());
+    }
+
+    URL toURL(String jarName, String entryName) {
+        String file = toAbsPath() + "!/" + (jarName.isEmpty() ? "" : jarName + "!/") + entryName;
+        try {
+            return new URL(WarURLStreamHandler.PROTOCOL, "", -1, file, this.urlHandler);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException(e);
+        }
+    }
+
+    String toAbsPath() {
+        String abs = this.path.toAbsolutePath().normalize().toString().replace('\\', '/');
+        return abs.startsWith("/") ? abs : "/" + abs;
+    }
+
+    // resolve entry of URL created by toURL():
+    ZipIndex.Entry resolve(URL url) throws IOException {
+        String file = url.getFile();
+        String prefix = toAbsPath() + "!/";
+        if (!file.startsWith(prefix)) {
+            throw new IOException("URL is not in war: " + url);
+        }
+        String rest = file.substring(prefix.length());
+        int n = rest.indexOf("!/");
+        ZipIndex.Entry entry = n == -1 ? this.war.getEntry(rest) : getLibJar(rest.substring(0, n)).getEntry(rest.substring(n + 2));
+        if (entry == null) {
+            throw new IOException("Entry not found: " + url);
+        }
+        return entry;
+    }
+
+    @Override
+    public String toString() {
+        return "WarArchive[" + this.path + "]";
+    }
+}
@@ -0,0 +1,62 @@
+package cn.com.kevin.classloader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLStreamHandler;
+
+/**
+ * Handler of "war:" URLs created by WarArchive. URLs are always created with
+ * this handler so no global URLStreamHandlerFactory is installed.
+ */
+public class WarURLStreamHandler extends URLStreamHandler {
+    static final String PROTOCOL = "war";
+
+    final WarArchive archive;
+
+    WarURLStreamHandler(WarArchive archive) {
+        this.archive = archive;
+    }
+
+    @Override
+    protected URLConnection openConnection(URL url) throws IOException {
+        return new URLConnection(url) {
+            ZipIndex.Entry entry;
+
+            @Override
+            public void connect() throws IOException {
+                if (!this.connected) {
+                    this.entry = archive.resolve(this.url);
+                    this.connected = true;
+                }
+            }
+
+            @Override
+            public InputStream getInputStream() throws IOException {
+                connect();
+                return this.entry.openStream();
+            }
+
+            @Override
+            public long getContentLengthLong() {
+                try {
+                    connect();
+                    return this.entry.getSize();
+                } catch (IOException e) {
+                    return -1;
+                }
+            }
+
+            @Override
+            public long getLastModified() {
+                try {
+                    connect();
+                    return this.entry.getLastModified();
+                } catch (IOException e) {
+                    return 0;
+                }
+            }
+        };
+    }
+}
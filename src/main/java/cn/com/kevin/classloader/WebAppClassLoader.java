@@ -4,77 +4,528 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.UncheckedIOException;
+import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.nio.ByteBuffer;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.security.CodeSigner;
+import java.security.CodeSource;
+import java.security.ProtectionDomain;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
 import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
+import java.util.jar.Manifest;
+import java.util.stream.Stream;
 
+/**
+ * Load classes and resources from WEB-INF/classes and WEB-INF/lib/*.jar.
+ *
+ * Instead of probing each jar in turn like URLClassLoader, a package name to
+ * class path elements index is built when created, so findClass() and
+ * findResource() only look into elements containing the package. Element 0 is
+ * WEB-INF/classes, element i (i >= 1) is the i-th jar.
+ *
+ * Directories are indexed too (as "com/example/"), so getResource("com/") and
+ * getResources("com/") return directory URLs like URLClassLoader, which
+ * classpath scanners depend on.
+ *
+ * When loading from war, all nested jars are opened when created to build the
+ * index, so deflated jars are held in heap while the class loader is alive.
+ */
 public class WebAppClassLoader extends URLClassLoader {
+    static {
+        registerAsParallelCapable();
+    }
+
+    static final int[] EMPTY = new int[0];
+    // getResource("") returns classes dir only, as URLClassLoader:
+    static final int[] ROOT = new int[] { 0 };
+
     final Logger logger = LoggerFactory.getLogger(getClass());
 
     final Path classPath;
     final Path[] libJars;
+    // not null if classes are loaded directly from war:
+    final WarArchive war;
+    // opened jars if not loaded from war, or nested jars in war:
+    final JarFile[] jarFiles;
+    final ZipIndex[] zipJars;
+    // package (dir of resource, e.g. "com/example", or "" for root) -> indices of elements:
+    final Map<String, int[]> packageIndex;
+    // URLs of classes dir and jars if not loaded from war:
+    final URL[] elementURLs;
+    final Map<Integer, ProtectionDomain> protectionDomains = new ConcurrentHashMap<>();
+    final Map<Integer, Optional<Manifest>> manifests = new ConcurrentHashMap<>();
 
     public WebAppClassLoader(Path classPath, Path libPath) throws IOException {
         super("WebAppClassLoader", createUrls(classPath, libPath), ClassLoader.getSystemClassLoader());
         this.classPath = classPath.toAbsolutePath().normalize();
-        this.libJars = Files.list(libPath).filter(p -> p.toString().endsWith(".jar")).map(p -> p.toAbsolutePath().normalize()).sorted().toArray(Path[]::new);
+        try (Stream<Path> stream = Files.list(libPath)) {
+            this.libJars = stream.filter(p -> p.toString().endsWith(".jar")).map(p -> p.toAbsolutePath().normalize()).sorted().toArray(Path[]::new);
+        }
+        this.war = null;
         logger.info("set classes path: {}", this.classPath);
         Arrays.stream(this.libJars).forEach(p -> {
             logger.info("set jar path: {}", p);
         });
+        long start = System.nanoTime();
+        this.jarFiles = new JarFile[this.libJars.length];
+        this.zipJars = null;
+        this.elementURLs = getURLs();
+        Map<String, List<Integer>> index = new HashMap<>();
+        try (Stream<Path> stream = Files.walk(this.classPath)) {
+            stream.filter(Files::isRegularFile).forEach(p -> {
+                addToIndex(index, this.classPath.relativize(p).toString().replace('\\', '/'), 0);
+            });
+        }
+        for (int i = 0; i < this.libJars.length; i++) {
+            this.jarFiles[i] = new JarFile(this.libJars[i].toFile());
+            int element = i + 1;
+            this.jarFiles[i].stream().filter(entry -> !entry.isDirectory()).forEach(entry -> {
+                addToIndex(index, entry.getName(), element);
+            });
+        }
+        this.packageIndex = toPackageIndex(index);
+        logger.info("index {} packages in {} ms", this.packageIndex.size(), (System.nanoTime() - start) / 1_000_000);
     }
 
-    public void scanClassPath(Consumer<Resource> handler) {
-        scanClassPath0(handler, this.classPath, this.classPath);
+    /**
+     * Load classes and resources directly from war without extraction. Paths of
+     * classes dir and jars are virtual paths under war path, e.g.
+     * "/path/app.war/WEB-INF/lib/abc.jar".
+     */
+    public WebAppClassLoader(WarArchive war) throws IOException {
+        super("WebAppClassLoader", new URL[0], ClassLoader.getSystemClassLoader());
+        this.war = war;
+        this.classPath = war.getPath().resolve("WEB-INF/classes");
+        this.libJars = war.getLibJarNames().stream().map(name -> war.getPath().resolve(name)).toArray(Path[]::new);
+        logger.info("set classes path: {}", this.classPath);
+        Arrays.stream(this.libJars).forEach(p -> {
+            logger.info("set jar path: {}", p);
+        });
+        long start = System.nanoTime();
+        this.jarFiles = null;
+        this.zipJars = new ZipIndex[this.libJars.length];
+        this.elementURLs = null;
+        Map<String, List<Integer>> index = new HashMap<>();
+        for (ZipIndex.Entry entry : war.getClassEntries()) {
+            addToIndex(index, entry.getName().substring(WarArchive.CLASSES.length()), 0);
+        }
+        long inflated = 0;
+        for (int i = 0; i < this.libJars.length; i++) {
+            String jarName = war.getLibJarNames().get(i);
+            this.zipJars[i] = war.getLibJar(jarName);
+            ZipIndex.Entry jarEntry = war.getEntry(jarName);
+            if (jarEntry.method != 0) {
+                inflated += jarEntry.getSize();
+            }
+            for (ZipIndex.Entry entry : this.zipJars[i].getEntries()) {
+                if (!entry.isDirectory()) {
+                    addToIndex(index, entry.getName(), i + 1);
+                }
+            }
+        }
+        this.packageIndex = toPackageIndex(index);
+        logger.info("index {} packages in {} ms, deflated jars inflated to heap: {} KB", this.packageIndex.size(),
+                (System.nanoTime() - start) / 1_000_000, inflated / 1024);
     }
 
-    void scanClassPath0(Consumer<Resource> handler, Path basePath, Path path) {
-        try {
-            Files.list(path).sorted().forEach(p -> {
-                if (Files.isDirectory(p)) {
-                    scanClassPath0(handler, basePath, p);
-                } else if (Files.isRegularFile(p)) {
-                    Path subPath = basePath.relativize(p);
-                    handler.accept(new Resource(p, subPath.toString().replace('\\', '/')));
+    static void addToIndex(Map<String, List<Integer>> index, String name, int element) {
+        int n = name.lastIndexOf('/');
+        if (addElement(index, n == -1 ? "" : name.substring(0, n), element) && n > 0) {
+            // first entry of package in element, add its dirs, e.g. "com/" and "com/example/":
+            for (int i = name.indexOf('/'); i != -1 && i <= n; i = name.indexOf('/', i + 1)) {
+                addElement(index, name.substring(0, i + 1), element);
+            }
+        }
+    }
+
+    // return true if element is added:
+    static boolean addElement(Map<String, List<Integer>> index, String key, int element) {
+        List<Integer> elements = index.computeIfAbsent(key, k -> new ArrayList<>(1));
+        // entries are added element by element:
+        if (elements.isEmpty() || elements.get(elements.size() - 1) != element) {
+            elements.add(element);
+            return true;
+        }
+        return false;
+    }
+
+    static Map<String, int[]> toPackageIndex(Map<String, List<Integer>> index) {
+        Map<String, int[]> map = new HashMap<>(index.size() * 4 / 3 + 1);
+        index.forEach((pkg, elements) -> {
+            map.put(pkg, elements.stream().mapToInt(Integer::intValue).toArray());
+        });
+        return map;
+    }
+
+    int[] lookup(String name) {
+        if (name.isEmpty()) {
+            return ROOT;
+        }
+        if (name.endsWith("/")) {
+            return this.packageIndex.getOrDefault(name, EMPTY);
+        }
+        int n = name.lastIndexOf('/');
+        return this.packageIndex.getOrDefault(n == -1 ? "" : name.substring(0, n), EMPTY);
+    }
+
+    /**
+     * Get war if classes are loaded directly from war, or null if from extracted dir.
+     */
+    public WarArchive getWarArchive() {
+        return this.war;
+    }
+
+    @Override
+    protected Class<?> findClass(String name) throws ClassNotFoundException {
+        String path = name.replace('.', '/') + ".class";
+        for (int element : lookup(path)) {
+            ByteBuffer data;
+            try {
+                data = readResource(element, path);
+            } catch (IOException e) {
+                throw new ClassNotFoundException(name, e);
+            }
+            if (data != null) {
+                definePackageIfNecessary(name, element);
+                return defineClass(name, data, getProtectionDomain(element));
+            }
+        }
+        throw new ClassNotFoundException(name);
+    }
+
+    void definePackageIfNecessary(String className, int element) {
+        int n = className.lastIndexOf('.');
+        if (n > 0) {
+            String pkg = className.substring(0, n);
+            if (getDefinedPackage(pkg) == null) {
+                try {
+                    Manifest manifest = getManifest(element);
+                    if (manifest != null) {
+                        definePackage(pkg, manifest, getElementURL(element));
+                    } else {
+                        definePackage(pkg, null, null, null, null, null, null, null);
+                    }
+                } catch (IllegalArgumentException e) {
+                    // defined by another thread
                 }
-            });
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            }
         }
     }
 
-    public void scanJar(Consumer<Resource> handler) {
-        try {
-            for (Path jarPath : this.libJars) {
-                scanJar0(handler, jarPath);
+    // return data of resource in element, or null if not found:
+    ByteBuffer readResource(int element, String name) throws IOException {
+        if (this.war != null) {
+            ZipIndex.Entry entry = getZipEntry(element, name);
+            return entry == null ? null : entry.getData();
+        }
+        if (element == 0) {
+            Path file = this.classPath.resolve(name);
+            return Files.isRegularFile(file) ? ByteBuffer.wrap(Files.readAllBytes(file)) : null;
+        }
+        JarFile jarFile = this.jarFiles[element - 1];
+        JarEntry entry = jarFile.getJarEntry(name);
+        if (entry == null) {
+            return null;
+        }
+        try (InputStream input = jarFile.getInputStream(entry)) {
+            return ByteBuffer.wrap(input.readAllBytes());
+        }
+    }
+
+    ZipIndex.Entry getZipEntry(int element, String name) {
+        return element == 0 ? this.war.getEntry(WarArchive.CLASSES + name) : this.zipJars[element - 1].getEntry(name);
+    }
+
+    // return URL of resource in element, or null if not found:
+    URL getResourceURL(int element, String name) {
+        if (name.isEmpty() || name.endsWith("/")) {
+            // dir is in element if indexed:
+            return getDirectoryURL(element, name);
+        }
+        if (this.war != null) {
+            ZipIndex.Entry entry = getZipEntry(element, name);
+            return entry == null ? null : this.war.toURL(entry);
+        }
+        if (element == 0) {
+            Path file = this.classPath.resolve(name);
+            return Files.isRegularFile(file) ? toURL(file.toUri().toString()) : null;
+        }
+        if (this.jarFiles[element - 1].getJarEntry(name) == null) {
+            return null;
+        }
+        return toURL("jar:" + getElementURL(element) + "!/" + name);
+    }
+
+    // URL of dir in element, e.g. "com/example/", or "" for root:
+    URL getDirectoryURL(int element, String name) {
+        if (this.war != null) {
+            return element == 0 ? this.war.toURL("", WarArchive.CLASSES + name) : this.war.toURL(this.zipJars[element - 1].getName(), name);
+        }
+        if (element == 0) {
+            return toURL(this.classPath.resolve(name).toUri().toString());
+        }
+        return toURL("jar:" + getElementURL(element) + "!/" + name);
+    }
+
+    // URL of classes dir or jar:
+    URL getElementURL(int element) {
+        if (this.war != null) {
+            return element == 0 ? this.war.toURL("", "WEB-INF/classes/") : this.war.toURL(this.zipJars[element - 1].getName(), "");
+        }
+        return this.elementURLs[element];
+    }
+
+    Manifest getManifest(int element) {
+        if (element == 0) {
+            return null;
+        }
+        return this.manifests.computeIfAbsent(element, k -> {
+            try {
+                if (this.war == null) {
+                    return Optional.ofNullable(this.jarFiles[element - 1].getManifest());
+                }
+                ZipIndex.Entry entry = this.zipJars[element - 1].getEntry(JarFile.MANIFEST_NAME);
+                if (entry == null) {
+                    return Optional.empty();
+                }
+                try (InputStream input = entry.openStream()) {
+                    return Optional.of(new Manifest(input));
+                }
+            } catch (IOException e) {
+                logger.warn("read manifest of {} failed: {}", this.libJars[element - 1], e.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    ProtectionDomain getProtectionDomain(int element) {
+        return this.protectionDomains.computeIfAbsent(element, k -> {
+            return new ProtectionDomain(new CodeSource(getElementURL(element), (CodeSigner[]) null), null, this, null);
+        });
+    }
+
+    @Override
+    public URL findResource(String name) {
+        for (int element : lookup(name)) {
+            URL url = getResourceURL(element, name);
+            if (url != null) {
+                return url;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public Enumeration<URL> findResources(String name) throws IOException {
+        List<URL> urls = new ArrayList<>();
+        for (int element : lookup(name)) {
+            URL url = getResourceURL(element, name);
+            if (url != null) {
+                urls.add(url);
+            }
+        }
+        return Collections.enumeration(urls);
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (this.jarFiles != null) {
+            for (JarFile jarFile : this.jarFiles) {
+                if (jarFile != null) {
+                    jarFile.close();
+                }
             }
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
         }
+        super.close();
+    }
+
+    static URL toURL(String url) {
+        try {
+            return new URL(url);
+        } catch (MalformedURLException e) {
+            throw new IllegalArgumentException("Invalid URL: " + url, e);
+        }
+    }
+
+    List<Resource> getClassResources() {
+        List<Resource> list = new ArrayList<>();
+        for (ZipIndex.Entry entry : this.war.getClassEntries()) {
+            String name = entry.getName().substring(WarArchive.CLASSES.length());
+            list.add(new Resource(this.classPath.resolve(name), name, null, entry));
+        }
+        return list;
     }
 
     void scanJar0(Consumer<Resource> handler, Path jarPath) throws IOException {
-        JarFile jarFile = new JarFile(jarPath.toFile());
+        if (this.war != null) {
+            for (ZipIndex.Entry entry : this.war.getLibJar(toLibJarName(jarPath)).getEntries()) {
+                if (!entry.isDirectory()) {
+                    handler.accept(new Resource(jarPath, entry.getName(), null, entry));
+                }
+            }
+            return;
+        }
+        // reuse jar opened by class loader:
+        int i = Arrays.asList(this.libJars).indexOf(jarPath);
+        if (i >= 0) {
+            scanJarFile(handler, jarPath, this.jarFiles[i]);
+            return;
+        }
+        try (JarFile jarFile = new JarFile(jarPath.toFile())) {
+            scanJarFile(handler, jarPath, jarFile);
+        }
+    }
+
+    void scanJarFile(Consumer<Resource> handler, Path jarPath, JarFile jarFile) {
         jarFile.stream().filter(entry -> !entry.isDirectory()).forEach(entry -> {
             String name = entry.getName();
-            handler.accept(new Resource(jarPath, name));
+            handler.accept(new Resource(jarPath, name, jarFile));
         });
     }
 
+    public List<Path> getLibJars() {
+        return List.of(this.libJars);
+    }
+
+    // e.g. "WEB-INF/lib/abc.jar":
+    String toLibJarName(Path jarPath) {
+        return WarArchive.LIB + jarPath.getFileName().toString();
+    }
+
+    long getJarSize(Path jarPath) throws IOException {
+        if (this.war != null) {
+            return this.war.getEntry(toLibJarName(jarPath)).getSize();
+        }
+        return Files.size(jarPath);
+    }
+
+    long getJarLastModified(Path jarPath) throws IOException {
+        if (this.war != null) {
+            return this.war.getEntry(toLibJarName(jarPath)).getLastModified();
+        }
+        return Files.getLastModifiedTime(jarPath).toMillis();
+    }
+
+    InputStream openJar(Path jarPath) throws IOException {
+        if (this.war != null) {
+            return this.war.getEntry(toLibJarName(jarPath)).openStream();
+        }
+        return Files.newInputStream(jarPath);
+    }
+
+    /**
+     * Scan classes dir on the pool, one task per sub directory. The mapper is
+     * called concurrently and returns null to skip a resource. Results are in
+     * the same order as sequential scanning.
+     */
+    public <T> List<T> scanClassPath(Function<Resource, T> mapper, ForkJoinPool pool) {
+        if (this.war != null) {
+            List<Resource> resources = getClassResources();
+            // parallel stream runs in the pool it was submitted to:
+            return pool.submit(() -> resources.parallelStream().map(mapper).filter(Objects::nonNull).toList()).join();
+        }
+        return pool.invoke(new ScanDirTask<>(mapper, this.classPath, this.classPath));
+    }
+
+    /**
+     * Scan jars on the pool, one task per jar. Returns results of each jar in the
+     * same order as the given jars.
+     */
+    public <T> Map<Path, List<T>> scanJars(List<Path> jarPaths, Function<Resource, T> mapper, ForkJoinPool pool) {
+        List<ForkJoinTask<List<T>>> tasks = new ArrayList<>(jarPaths.size());
+        for (Path jarPath : jarPaths) {
+            tasks.add(pool.submit(() -> {
+                long start = System.nanoTime();
+                List<T> results = new ArrayList<>();
+                int[] entries = new int[1];
+                scanJar0(r -> {
+                    entries[0]++;
+                    T t = mapper.apply(r);
+                    if (t != null) {
+                        results.add(t);
+                    }
+                }, jarPath);
+                logger.info("scan jar {}: {} entries in {} ms", jarPath.getFileName(), entries[0], (System.nanoTime() - start) / 1_000_000);
+                return results;
+            }));
+        }
+        Map<Path, List<T>> map = new LinkedHashMap<>();
+        for (int i = 0; i < tasks.size(); i++) {
+            map.put(jarPaths.get(i), tasks.get(i).join());
+        }
+        return map;
+    }
+
+    class ScanDirTask<T> extends RecursiveTask<List<T>> {
+        private static final long serialVersionUID = 1L;
+
+        final Function<Resource, T> mapper;
+        final Path basePath;
+        final Path path;
+
+        ScanDirTask(Function<Resource, T> mapper, Path basePath, Path path) {
+            this.mapper = mapper;
+            this.basePath = basePath;
+            this.path = path;
+        }
+
+        @Override
+        protected List<T> compute() {
+            List<Path> children;
+            try (Stream<Path> stream = Files.list(this.path)) {
+                children = stream.sorted().toList();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            // fork sub directories first, then process files in current thread:
+            List<ScanDirTask<T>> subTasks = new ArrayList<>();
+            for (Path p : children) {
+                if (Files.isDirectory(p)) {
+                    ScanDirTask<T> task = new ScanDirTask<>(this.mapper, this.basePath, p);
+                    task.fork();
+                    subTasks.add(task);
+                }
+            }
+            List<T> results = new ArrayList<>();
+            int n = 0;
+            for (Path p : children) {
+                if (Files.isDirectory(p)) {
+                    // keep sorted order:
+                    results.addAll(subTasks.get(n).join());
+                    n++;
+                } else if (Files.isRegularFile(p)) {
+                    Path subPath = this.basePath.relativize(p);
+                    T t = this.mapper.apply(new Resource(p, subPath.toString().replace('\\', '/')));
+                    if (t != null) {
+                        results.add(t);
+                    }
+                }
+            }
+            return results;
+        }
+    }
+
     static URL[] createUrls(Path classPath, Path libPath) throws IOException {
         List<URL> urls = new ArrayList<>();
         urls.add(toDirURL(classPath));
-        Files.list(libPath).filter(p -> p.toString().endsWith(".jar")).sorted().forEach(p -> {
-            urls.add(toJarURL(p));
-        });
+        try (Stream<Path> stream = Files.list(libPath)) {
+            stream.filter(p -> p.toString().endsWith(".jar")).sorted().forEach(p -> {
+                urls.add(toJarURL(p));
+            });
+        }
         return urls.toArray(URL[]::new);
     }
 
@@ -0,0 +1,345 @@
+package cn.com.kevin.classloader;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.*;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Read-only zip archive backed by a ByteBuffer (memory-mapped file, slice of
+ * outer archive, or heap buffer).
+ *
+ * Only the central directory is parsed when created. Entry data is located by
+ * its local header when read: stored entries are returned as slices of the
+ * buffer without copy, deflated entries are inflated to heap by getData(), or
+ * inflated while reading by openStream().
+ *
+ * ZIP64 and encrypted entries are not supported and cause IOException, so the
+ * caller can fallback to extraction.
+ */
+public class ZipIndex {
+    static final int EOCD_SIGNATURE = 0x06054b50;
+    static final int CEN_SIGNATURE = 0x02014b50;
+    static final int LOC_SIGNATURE = 0x04034b50;
+    static final int EOCD_SIZE = 22;
+    static final int CEN_SIZE = 46;
+    static final int LOC_SIZE = 30;
+
+    // path in outer archive, or "" for the outermost archive:
+    final String name;
+    final ByteBuffer buffer;
+    // entry name -> entry, for lookup:
+    final Map<String, Entry> entries;
+    // entries sorted by name, for listing:
+    final List<Entry> sortedEntries;
+
+    public ZipIndex(String name, ByteBuffer buffer) throws IOException {
+        this.name = name;
+        this.buffer = buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        List<Entry> list = readCentralDirectory();
+        Map<String, Entry> map = new HashMap<>(list.size() * 4 / 3 + 1);
+        for (Entry entry : list) {
+            map.putIfAbsent(entry.name, entry);
+        }
+        list.sort(Comparator.comparing(e -> e.name));
+        this.entries = map;
+        this.sortedEntries = List.copyOf(list);
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public int size() {
+        return this.sortedEntries.size();
+    }
+
+    /**
+     * Get entry by name, e.g. "META-INF/MANIFEST.MF", or null if not found.
+     */
+    public Entry getEntry(String name) {
+        return this.entries.get(name);
+    }
+
+    /**
+     * Get all entries sorted by name.
+     */
+    public List<Entry> getEntries() {
+        return this.sortedEntries;
+    }
+
+    List<Entry> readCentralDirectory() throws IOException {
+        ByteBuffer buf = this.buffer;
+        int eocd = findEndOfCentralDirectory();
+        int total = u2(buf, eocd + 10);
+        long cenSize = u4(buf, eocd + 12);
+        long cenOffset = u4(buf, eocd + 16);
+        if (total == 0xffff || cenSize == 0xffffffffL || cenOffset == 0xffffffffL) {
+            throw new IOException("ZIP64 is not supported: " + displayName());
+        }
+        if (cenOffset + cenSize > eocd) {
+            throw new IOException("Invalid central directory: " + displayName());
+        }
+        List<Entry> list = new ArrayList<>(total);
+        int pos = (int) cenOffset;
+        for (int i = 0; i < total; i++) {
+            if (pos + CEN_SIZE > eocd || buf.getInt(pos) != CEN_SIGNATURE) {
+                throw new IOException("Invalid central directory header: " + displayName());
+            }
+            int flags = u2(buf, pos + 8);
+            int nameLen = u2(buf, pos + 28);
+            int extraLen = u2(buf, pos + 30);
+            int commentLen = u2(buf, pos + 32);
+            byte[] nameBytes = new byte[nameLen];
+            buf.get(pos + CEN_SIZE, nameBytes);
+            Entry entry = new Entry(this, new String(nameBytes, StandardCharsets.UTF_8), flags, u2(buf, pos + 10),
+                    dosToJavaTime(u2(buf, pos + 14), u2(buf, pos + 12)), u4(buf, pos + 20), u4(buf, pos + 24), u4(buf, pos + 42));
+            list.add(entry);
+            pos += CEN_SIZE + nameLen + extraLen + commentLen;
+        }
+        return list;
+    }
+
+    // search END header backward, which has a variable length comment at the end:
+    int findEndOfCentralDirectory() throws IOException {
+        int limit = this.buffer.limit();
+        int min = Math.max(0, limit - EOCD_SIZE - 0xffff);
+        for (int pos = limit - EOCD_SIZE; pos >= min; pos--) {
+            if (this.buffer.getInt(pos) == EOCD_SIGNATURE && pos + EOCD_SIZE + u2(this.buffer, pos + 20) == limit) {
+                return pos;
+            }
+        }
+        throw new IOException("Not a zip file: " + displayName());
+    }
+
+    ByteBuffer getData(Entry entry) throws IOException {
+        ByteBuffer data = getCompressedData(entry);
+        return switch (entry.method) {
+            case 0 -> data;
+            case 8 -> ByteBuffer.wrap(inflate(data, (int) entry.size, entry.name));
+            default -> throw new IOException("Unsupported compression method " + entry.method + ": " + entry.name);
+        };
+    }
+
+    InputStream openStream(Entry entry) throws IOException {
+        ByteBuffer data = getCompressedData(entry);
+        return switch (entry.method) {
+            case 0 -> new ByteBufferInputStream(data);
+            case 8 -> new EntryInflaterInputStream(data);
+            default -> throw new IOException("Unsupported compression method " + entry.method + ": " + entry.name);
+        };
+    }
+
+    // read-only slice of entry data as stored in archive:
+    ByteBuffer getCompressedData(Entry entry) throws IOException {
+        if ((entry.flags & 1) != 0) {
+            throw new IOException("Encrypted entry is not supported: " + entry.name);
+        }
+        if (entry.compressedSize > Integer.MAX_VALUE || entry.size > Integer.MAX_VALUE || entry.localHeaderOffset > Integer.MAX_VALUE) {
+            throw new IOException("Entry too large: " + entry.name);
+        }
+        int loc = (int) entry.localHeaderOffset;
+        if (loc + LOC_SIZE > this.buffer.limit() || this.buffer.getInt(loc) != LOC_SIGNATURE) {
+            throw new IOException("Invalid local header: " + entry.name);
+        }
+        // name and extra length in local header may differ from central directory:
+        int start = loc + LOC_SIZE + u2(this.buffer, loc + 26) + u2(this.buffer, loc + 28);
+        if (start + entry.compressedSize > this.buffer.limit()) {
+            throw new IOException("Truncated entry: " + entry.name);
+        }
+        return this.buffer.slice(start, (int) entry.compressedSize).asReadOnlyBuffer();
+    }
+
+    static byte[] inflate(ByteBuffer data, int size, String name) throws IOException {
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(data);
+            int n = 0;
+            while (n < size) {
+                int len = inflater.inflate(output, n, size - n);
+                if (len == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                n += len;
+            }
+            if (n != size) {
+                throw new IOException("Invalid entry size: " + name);
+            }
+        } catch (DataFormatException e) {
+            throw new IOException("Invalid deflated entry: " + name, e);
+        } finally {
+            inflater.end();
+        }
+        return output;
+    }
+
+    String displayName() {
+        return this.name.isEmpty() ? "archive" : this.name;
+    }
+
+    static int u2(ByteBuffer buf, int pos) {
+        return buf.getShort(pos) & 0xffff;
+    }
+
+    static long u4(ByteBuffer buf, int pos) {
+        return buf.getInt(pos) & 0xffffffffL;
+    }
+
+    // same as ZipEntry, DOS time is local time:
+    static long dosToJavaTime(int date, int time) {
+        try {
+            LocalDateTime ldt = LocalDateTime.of(((date >> 9) & 0x7f) + 1980, (date >> 5) & 0x0f, date & 0x1f, (time >> 11) & 0x1f,
+                    (time >> 5) & 0x3f, (time << 1) & 0x3e);
+            return ldt.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    public static class Entry {
+        final ZipIndex zip;
+        final String name;
+        final int flags;
+        final int method;
+        final long lastModified;
+        final long compressedSize;
+        final long size;
+        final long localHeaderOffset;
+
+        Entry(ZipIndex zip, String name, int flags, int method, long lastModified, long compressedSize, long size, long localHeaderOffset) {
+            this.zip = zip;
+            this.name = name;
+            this.flags = flags;
+            this.method = method;
+            this.lastModified = lastModified;
+            this.compressedSize = compressedSize;
+            this.size = size;
+            this.localHeaderOffset = localHeaderOffset;
+        }
+
+        public ZipIndex getZip() {
+            return this.zip;
+        }
+
+        public String getName() {
+            return this.name;
+        }
+
+        public boolean isDirectory() {
+            return this.name.endsWith("/");
+        }
+
+        public long getSize() {
+            return this.size;
+        }
+
+        public long getLastModified() {
+            return this.lastModified;
+        }
+
+        /**
+         * Get uncompressed data. The buffer is read-only slice of the archive if
+         * entry is stored, or a new heap buffer if entry is deflated.
+         */
+        public ByteBuffer getData() throws IOException {
+            return this.zip.getData(this);
+        }
+
+        /**
+         * Open stream of uncompressed data. Deflated entry is inflated while
+         * reading, so it is never held in heap as a whole.
+         */
+        public InputStream openStream() throws IOException {
+            return this.zip.openStream(this);
+        }
+
+        public byte[] readBytes() throws IOException {
+            ByteBuffer data = getData();
+            if (data.hasArray() && data.arrayOffset() == 0 && data.array().length == data.remaining()) {
+                return data.array();
+            }
+            byte[] b = new byte[data.remaining()];
+            data.get(b);
+            return b;
+        }
+
+        @Override
+        public String toString() {
+            return this.zip.name.isEmpty() ? this.name : this.zip.name + "!/" + this.name;
+        }
+    }
+
+    static class ByteBufferInputStream extends InputStream {
+        final ByteBuffer buffer;
+
+        ByteBufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+
+        @Override
+        public int read() {
+            return this.buffer.hasRemaining() ? this.buffer.get() & 0xff : -1;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!this.buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, this.buffer.remaining());
+            this.buffer.get(b, off, n);
+            return n;
+        }
+
+        @Override
+        public long skip(long n) {
+            int k = (int) Math.max(0, Math.min(n, this.buffer.remaining()));
+            this.buffer.position(this.buffer.position() + k);
+            return k;
+        }
+
+        @Override
+        public int available() {
+            return this.buffer.remaining();
+        }
+    }
+
+    // inflate from slice of archive directly, without copying input:
+    static class EntryInflaterInputStream extends InflaterInputStream {
+        final ByteBuffer data;
+        boolean filled = false;
+
+        EntryInflaterInputStream(ByteBuffer data) {
+            super(InputStream.nullInputStream(), new Inflater(true), 1);
+            this.data = data;
+        }
+
+        @Override
+        protected void fill() throws IOException {
+            if (this.filled) {
+                throw new EOFException("Unexpected end of deflated entry");
+            }
+            this.filled = true;
+            this.inf.setInput(this.data);
+        }
+
+        @Override
+        public void close() throws IOException {
+            super.close();
+            // inflater is not ended by super if passed in:
+            this.inf.end();
+        }
+    }
+}
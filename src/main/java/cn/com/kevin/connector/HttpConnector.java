@@ -4,20 +4,33 @@ import cn.com.kevin.Config;
 import cn.com.kevin.engine.HttpServletRequestImpl;
 import cn.com.kevin.engine.HttpServletResponseImpl;
 import cn.com.kevin.engine.ServletContextImpl;
+import cn.com.kevin.jfr.ContinuousProfiler;
+import cn.com.kevin.jfr.RequestEvent;
+import cn.com.kevin.metrics.MetricsRegistry;
+import cn.com.kevin.metrics.RequestMetrics;
+import cn.com.kevin.utils.HttpUtils;
+import cn.com.kevin.utils.StartupProfiler;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
+import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PrintWriter;
 import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class HttpConnector implements HttpHandler, AutoCloseable {
     final Logger logger = LoggerFactory.getLogger(getClass());
@@ -26,8 +39,23 @@ public class HttpConnector implements HttpHandler, AutoCloseable {
     final ClassLoader classLoader;
 
     final ServletContextImpl servletContext;
+    // process requests without connection, e.g. for warm-up:
+    final InProcessClient inProcessClient;
     final HttpServer httpServer;
     final Duration stopDelay = Duration.ofSeconds(5);
+    // System.nanoTime() when current request was queued to executor:
+    static final ThreadLocal<Long> QUEUED_NANOS = new ThreadLocal<>();
+    // not null if capture is enabled:
+    final RequestRecorder recorder;
+    // null if metrics is disabled:
+    final MetricsRegistry metricsRegistry;
+    final RequestMetrics requestMetrics;
+    final String metricsPath;
+    // null if profiler is disabled:
+    final ContinuousProfiler profiler;
+    final String profilerPath;
+    // null if slow request logging is disabled:
+    final SlowRequestWatchdog watchdog;
 
     public HttpConnector(Config config, String webRoot, Executor executor,
                          ClassLoader classLoader, List<Class<?>> autoScannedClasses) throws IOException {
@@ -42,7 +70,12 @@ public class HttpConnector implements HttpHandler, AutoCloseable {
 
         ServletContextImpl ctx = new ServletContextImpl(classLoader, config, webRoot);
         // ServletContext 上下文初始化
-        ctx.initialize(autoScannedClasses);
+        StartupProfiler.Phase initPhase = StartupProfiler.begin("context-init");
+        try {
+            ctx.initialize(autoScannedClasses);
+        } finally {
+            initPhase.close();
+        }
 
 ////        this.servletContext.initialize(List.of(IndexServlet.class, HelloServlet.class));
 //        this.servletContext.initServlets(List.of(IndexServlet.class, HelloServlet.class, LoginServlet.class, LogoutServlet.class));
@@ -55,26 +88,200 @@ public class HttpConnector implements HttpHandler, AutoCloseable {
 //        }
 
         this.servletContext = ctx;
+        this.inProcessClient = new InProcessClient(config, ctx);
+
+        // warm up JIT before accepting connections:
+        String warmUpFile = config.server.warmUp.file;
+        if (warmUpFile != null && !warmUpFile.isEmpty()) {
+            StartupProfiler.Phase warmUpPhase = StartupProfiler.begin("warm-up");
+            try {
+                warmUp(config.server.warmUp);
+            } finally {
+                warmUpPhase.close();
+            }
+        }
+
+        if (Boolean.TRUE.equals(config.server.metrics.enabled)) {
+            this.metricsRegistry = new MetricsRegistry();
+            this.requestMetrics = new RequestMetrics(this.metricsRegistry);
+            this.metricsPath = config.server.metrics.path;
+            registerGauges(executor);
+        } else {
+            this.metricsRegistry = null;
+            this.requestMetrics = null;
+            this.metricsPath = null;
+        }
+
+        if (Boolean.TRUE.equals(config.server.profiler.enabled)) {
+            this.profiler = new ContinuousProfiler(config.server.profiler.period, config.server.profiler.window);
+            this.profilerPath = config.server.profiler.path;
+        } else {
+            this.profiler = null;
+            this.profilerPath = null;
+        }
+
+        Config.SlowRequest slowRequest = config.server.slowRequest;
+        this.watchdog = slowRequest.threshold > 0 ? new SlowRequestWatchdog(slowRequest.threshold, slowRequest.sampleInterval,
+                slowRequest.maxSamples, slowRequest.maxLogsPerMinute) : null;
+
+        String captureFile = config.server.capture.file;
+        this.recorder = captureFile == null || captureFile.isEmpty() ? null
+                : new RequestRecorder(Path.of(captureFile), config.server.capture.sampleRate, config.server.capture.maxBody,
+                config.server.capture.maxRequests);
 
         // start http server
-        this.httpServer = HttpServer.create(new InetSocketAddress(config.server.host, config.server.port), config.server.backlog);
-        // handle 方法处理 HTTP 请求
-        this.httpServer.createContext("/", this);
-        // 设置 HttpServer 线程池
-        this.httpServer.setExecutor(executor);
-        this.httpServer.start();
+        StartupProfiler.Phase bindPhase = StartupProfiler.begin("bind");
+        try {
+            this.httpServer = HttpServer.create(new InetSocketAddress(config.server.host, config.server.port), config.server.backlog);
+            // handle 方法处理 HTTP 请求
+            this.httpServer.createContext("/", this);
+            // set executor of HttpServer, and remember when request is queued:
+            this.httpServer.setExecutor(task -> {
+                long queued = System.nanoTime();
+                executor.execute(() -> {
+                    QUEUED_NANOS.set(queued);
+                    try {
+                        task.run();
+                    } finally {
+                        QUEUED_NANOS.remove();
+                    }
+                });
+            });
+            this.httpServer.start();
+        } finally {
+            bindPhase.close();
+        }
 
         logger.info("start Kevin's Tomcat http server at {}:{}", config.server.host, config.server.port);
     }
 
+    void registerGauges(Executor executor) {
+        MetricsRegistry registry = this.metricsRegistry;
+        if (executor instanceof ThreadPoolExecutor pool) {
+            registry.gauge("executor_active_threads", "Threads executing requests.", pool::getActiveCount);
+            registry.gauge("executor_pool_threads", "Threads in executor pool.", pool::getPoolSize);
+            registry.gauge("executor_queued_tasks", "Requests waiting in executor queue.", () -> pool.getQueue().size());
+            registry.gauge("executor_completed_tasks", "Requests completed by executor.", pool::getCompletedTaskCount);
+        }
+        registry.gauge("sessions_active", "Sessions not expired.", this.servletContext::getSessionCount);
+    }
+
+    /**
+     * Get metrics registry, or null if metrics is disabled.
+     */
+    public MetricsRegistry getMetricsRegistry() {
+        return this.metricsRegistry;
+    }
+
+    void warmUp(Config.WarmUp warmUp) {
+        List<RecordedRequest> requests;
+        try {
+            requests = RecordedRequest.readAll(Path.of(warmUp.file));
+        } catch (IOException e) {
+            logger.warn("skip warm-up: could not read {}: {}", warmUp.file, e.getMessage());
+            return;
+        }
+        if (requests.isEmpty()) {
+            logger.warn("skip warm-up: no request in {}", warmUp.file);
+            return;
+        }
+        long start = System.nanoTime();
+        long iterations = warmUp.iterations > 0 ? warmUp.iterations : (warmUp.duration > 0 ? Long.MAX_VALUE : requests.size());
+        long deadline = warmUp.duration > 0 ? start + warmUp.duration * 1_000_000_000L : Long.MAX_VALUE;
+        int threads = Math.max(1, warmUp.threads);
+        logger.info("warm up by replaying {} recorded requests with {} threads...", requests.size(), threads);
+        AtomicLong counter = new AtomicLong();
+        AtomicLong replayed = new AtomicLong();
+        AtomicLong errors = new AtomicLong();
+        List<Thread> workers = new ArrayList<>(threads);
+        for (int i = 0; i < threads; i++) {
+            Thread t = new Thread(() -> {
+                long n;
+                while ((n = counter.getAndIncrement()) < iterations && System.nanoTime() < deadline) {
+                    if (!replay(requests.get((int) (n % requests.size())))) {
+                        errors.incrementAndGet();
+                    }
+                    replayed.incrementAndGet();
+                }
+            }, "warm-up-" + (i + 1));
+            t.setContextClassLoader(this.classLoader);
+            t.start();
+            workers.add(t);
+        }
+        try {
+            for (Thread t : workers) {
+                t.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.warn("warm-up interrupted.");
+            return;
+        }
+        logger.info("warm-up done: replay {} requests in {} ms, {} errors.", replayed.get(),
+                (System.nanoTime() - start) / 1_000_000, errors.get());
+    }
+
+    // process recorded request in-process, return false if failed:
+    boolean replay(RecordedRequest recorded) {
+        try {
+            return processInMemory(recorded).getResponseCode() < 500;
+        } catch (Exception e) {
+            logger.debug("warm-up request {} {} failed: {}", recorded.method(), recorded.uri(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Process recorded request in-process without connection. Context class
+     * loader of current thread should be the web app class loader.
+     */
+    public InMemoryExchange processInMemory(RecordedRequest recorded) throws IOException, ServletException {
+        return this.inProcessClient.execute(recorded);
+    }
+
+    public InProcessClient getInProcessClient() {
+        return this.inProcessClient;
+    }
+
+    /**
+     * Get listening address, e.g. the actual port if configured port is 0.
+     */
+    public InetSocketAddress getAddress() {
+        return this.httpServer.getAddress();
+    }
+
+    public ClassLoader getClassLoader() {
+        return this.classLoader;
+    }
+
     @Override
     public void handle(HttpExchange exchange) throws IOException {
         logger.info("{}: {}?{}", exchange.getRequestMethod(), exchange.getRequestURI().getPath(), exchange.getRequestURI().getRawQuery());
 
+        long start = System.nanoTime();
+        if (this.metricsPath != null && this.metricsPath.equals(exchange.getRequestURI().getPath())) {
+            sendMetrics(exchange);
+            return;
+        }
+        if (this.profilerPath != null && this.profilerPath.equals(exchange.getRequestURI().getPath())) {
+            sendProfile(exchange);
+            return;
+        }
+        RequestEvent requestEvent = new RequestEvent();
+        requestEvent.begin();
         var adapter = new HttpExchangeAdapter(exchange);
+        if (this.recorder != null) {
+            this.recorder.sample(adapter);
+        }
         var response = new HttpServletResponseImpl(this.config, adapter);
         var request = new HttpServletRequestImpl(this.config, this.servletContext, adapter, response);
+        Long queued = QUEUED_NANOS.get();
+        if (queued != null) {
+            request.setArrivalNanos(queued);
+        }
 
+        var inFlight = this.watchdog == null ? null
+                : this.watchdog.begin(exchange.getRequestMethod(), exchange.getRequestURI().getPath(), request);
         // process:
         try {
             Thread.currentThread().setContextClassLoader(this.classLoader);
@@ -83,7 +290,57 @@ public class HttpConnector implements HttpHandler, AutoCloseable {
             logger.error(e.getMessage(), e);
         } finally {
             Thread.currentThread().setContextClassLoader(null);
-            response.cleanup();
+            try {
+                try {
+                    response.cleanup();
+                } finally {
+                    request.cleanup();
+                }
+            } finally {
+                // always recorded even if cleanup failed, after response is flushed so bytes out are counted:
+                if (inFlight != null) {
+                    this.watchdog.end(inFlight, response.getStatus());
+                }
+                if (this.requestMetrics != null) {
+                    this.requestMetrics.record(request.getServletMappingPattern(), response.getStatus(), System.nanoTime() - start,
+                            adapter.getRequestBodyBytes(), adapter.getResponseBodyBytes());
+                }
+                requestEvent.end();
+                if (requestEvent.shouldCommit()) {
+                    requestEvent.method = exchange.getRequestMethod();
+                    requestEvent.uri = exchange.getRequestURI().getPath();
+                    requestEvent.mapping = request.getServletMappingPattern();
+                    requestEvent.status = response.getStatus();
+                    requestEvent.commit();
+                }
+            }
+        }
+    }
+
+    void sendMetrics(HttpExchange exchange) throws IOException {
+        sendText(exchange, "text/plain; version=0.0.4; charset=utf-8", this.metricsRegistry.scrape());
+    }
+
+    // query: mapping=/api/*&minutes=5
+    void sendProfile(HttpExchange exchange) throws IOException {
+        var query = HttpUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+        List<String> mapping = query.get("mapping");
+        List<String> minutes = query.get("minutes");
+        int n;
+        try {
+            n = minutes == null ? Integer.MAX_VALUE : Integer.parseInt(minutes.get(0));
+        } catch (NumberFormatException e) {
+            n = Integer.MAX_VALUE;
+        }
+        sendText(exchange, "text/plain; charset=utf-8", this.profiler.collapsedStacks(mapping == null ? null : mapping.get(0), n));
+    }
+
+    void sendText(HttpExchange exchange, String contentType, String text) throws IOException {
+        byte[] body = text.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, body.length == 0 ? -1 : body.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(body);
         }
     }
 
@@ -100,5 +357,14 @@ public class HttpConnector implements HttpHandler, AutoCloseable {
     public void close() throws Exception {
         this.servletContext.destroy();
         this.httpServer.stop((int) this.stopDelay.toSeconds());
+        if (this.recorder != null) {
+            this.recorder.close();
+        }
+        if (this.profiler != null) {
+            this.profiler.close();
+        }
+        if (this.watchdog != null) {
+            this.watchdog.close();
+        }
     }
 }
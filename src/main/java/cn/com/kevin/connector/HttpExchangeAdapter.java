@@ -3,6 +3,9 @@ package cn.com.kevin.connector;
 import com.sun.net.httpserver.Headers;
 import com.sun.net.httpserver.HttpExchange;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -16,6 +19,11 @@ public class HttpExchangeAdapter implements HttpExchangeRequest, HttpExchangeRes
     final HttpExchange exchange;
 
     byte[] requestBodyData;
+    boolean requestBodyStreamed = false;
+    // counts bytes of request body read from connection:
+    CountingInputStream requestBody;
+    // counts bytes of response body:
+    CountingOutputStream responseBody;
 
     public HttpExchangeAdapter(HttpExchange exchange) {
         this.exchange = exchange;
@@ -23,7 +31,24 @@ public class HttpExchangeAdapter implements HttpExchangeRequest, HttpExchangeRes
 
     @Override
     public OutputStream getResponseBody() {
-        return this.exchange.getResponseBody();
+        if (this.responseBody == null) {
+            this.responseBody = new CountingOutputStream(this.exchange.getResponseBody());
+        }
+        return this.responseBody;
+    }
+
+    /**
+     * Get bytes of request body read so far.
+     */
+    public long getRequestBodyBytes() {
+        return this.requestBody == null ? 0 : this.requestBody.count;
+    }
+
+    /**
+     * Get bytes of response body written so far.
+     */
+    public long getResponseBodyBytes() {
+        return this.responseBody == null ? 0 : this.responseBody.count;
     }
 
     @Override
@@ -54,13 +79,32 @@ public class HttpExchangeAdapter implements HttpExchangeRequest, HttpExchangeRes
     @Override
     public byte[] getRequestBody() throws IOException {
         if (this.requestBodyData == null) {
-            try (InputStream input = this.exchange.getRequestBody()) {
+            if (this.requestBodyStreamed) {
+                throw new IllegalStateException("Request body was already read as stream.");
+            }
+            try (InputStream input = requestBody()) {
                 this.requestBodyData = input.readAllBytes();
             }
         }
         return this.requestBodyData;
     }
 
+    @Override
+    public InputStream getRequestBodyStream() throws IOException {
+        if (this.requestBodyData != null) {
+            return new ByteArrayInputStream(this.requestBodyData);
+        }
+        this.requestBodyStreamed = true;
+        return requestBody();
+    }
+
+    InputStream requestBody() {
+        if (this.requestBody == null) {
+            this.requestBody = new CountingInputStream(this.exchange.getRequestBody());
+        }
+        return this.requestBody;
+    }
+
     @Override
     public Headers getResponseHeaders() {
         return this.exchange.getResponseHeaders();
@@ -70,4 +114,62 @@ public class HttpExchangeAdapter implements HttpExchangeRequest, HttpExchangeRes
     public void sendResponseHeaders(int rCode, long responseLength) throws IOException {
         this.exchange.sendResponseHeaders(rCode, responseLength);
     }
+
+    @Override
+    public void close() {
+        this.exchange.close();
+    }
+
+    static class CountingInputStream extends FilterInputStream {
+        long count = 0;
+
+        CountingInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = this.in.read();
+            if (b >= 0) {
+                this.count++;
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = this.in.read(b, off, len);
+            if (n > 0) {
+                this.count += n;
+            }
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = this.in.skip(n);
+            this.count += skipped;
+            return skipped;
+        }
+    }
+
+    static class CountingOutputStream extends FilterOutputStream {
+        long count = 0;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            this.out.write(b);
+            this.count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            this.out.write(b, off, len);
+            this.count += len;
+        }
+    }
 }
@@ -3,6 +3,7 @@ package cn.com.kevin.connector;
 import com.sun.net.httpserver.Headers;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetSocketAddress;
 import java.net.URI;
 
@@ -18,4 +19,10 @@ public interface HttpExchangeRequest {
     InetSocketAddress getLocalAddress();
 
     byte[] getRequestBody() throws IOException;
+
+    /**
+     * Get request body as stream. If the body is not read yet, it is streamed
+     * from the connection directly and cannot be read again by getRequestBody().
+     */
+    InputStream getRequestBodyStream() throws IOException;
 }
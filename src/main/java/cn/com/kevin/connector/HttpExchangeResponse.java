@@ -11,4 +11,9 @@ public interface HttpExchangeResponse {
     void sendResponseHeaders(int rCode, long responseLength) throws IOException;
 
     OutputStream getResponseBody();
+
+    /**
+     * Close exchange, so pending and later output fails.
+     */
+    void close();
 }
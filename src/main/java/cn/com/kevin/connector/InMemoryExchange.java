@@ -0,0 +1,106 @@
+package cn.com.kevin.connector;
+
+import com.sun.net.httpserver.Headers;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exchange without connection: request is given in memory and response is
+ * collected in memory, so requests can be processed in-process.
+ */
+public class InMemoryExchange implements HttpExchangeRequest, HttpExchangeResponse {
+    final String method;
+    final URI uri;
+    final Headers requestHeaders = new Headers();
+    final byte[] requestBody;
+    final InetSocketAddress localAddress;
+    final InetSocketAddress remoteAddress;
+
+    final Headers responseHeaders = new Headers();
+    final ByteArrayOutputStream responseBody = new ByteArrayOutputStream();
+    int responseCode = -1;
+
+    public InMemoryExchange(String method, URI uri, Map<String, List<String>> headers, byte[] body,
+                            InetSocketAddress localAddress) {
+        this.method = method;
+        this.uri = uri;
+        this.requestHeaders.putAll(headers);
+        this.requestBody = body == null ? new byte[0] : body;
+        this.localAddress = localAddress;
+        this.remoteAddress = new InetSocketAddress(InetAddress.getLoopbackAddress(), 0);
+    }
+
+    @Override
+    public String getRequestMethod() {
+        return this.method;
+    }
+
+    @Override
+    public URI getRequestURI() {
+        return this.uri;
+    }
+
+    @Override
+    public Headers getRequestHeaders() {
+        return this.requestHeaders;
+    }
+
+    @Override
+    public InetSocketAddress getRemoteAddress() {
+        return this.remoteAddress;
+    }
+
+    @Override
+    public InetSocketAddress getLocalAddress() {
+        return this.localAddress;
+    }
+
+    @Override
+    public byte[] getRequestBody() {
+        return this.requestBody;
+    }
+
+    @Override
+    public InputStream getRequestBodyStream() {
+        return new ByteArrayInputStream(this.requestBody);
+    }
+
+    @Override
+    public Headers getResponseHeaders() {
+        return this.responseHeaders;
+    }
+
+    @Override
+    public void sendResponseHeaders(int rCode, long responseLength) {
+        this.responseCode = rCode;
+    }
+
+    @Override
+    public OutputStream getResponseBody() {
+        return this.responseBody;
+    }
+
+    @Override
+    public void close() {
+        // no connection to release:
+    }
+
+    /**
+     * Get response code, or -1 if response headers are not sent.
+     */
+    public int getResponseCode() {
+        return this.responseCode;
+    }
+
+    public byte[] getResponseBodyBytes() {
+        return this.responseBody.toByteArray();
+    }
+}
@@ -0,0 +1,87 @@
+package cn.com.kevin.connector;
+
+import cn.com.kevin.Config;
+import cn.com.kevin.engine.HttpServletRequestImpl;
+import cn.com.kevin.engine.HttpServletResponseImpl;
+import cn.com.kevin.engine.ServletContextImpl;
+import jakarta.servlet.ServletException;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Client which sends requests to ServletContextImpl in-process, without
+ * socket or HTTP parsing: request and response are kept in memory by
+ * InMemoryExchange. Used by warm-up, replay and benchmarks to measure the
+ * engine and servlets only.
+ *
+ * Client is thread-safe and keeps no state (e.g. cookies) between requests.
+ * Context class loader of calling thread should be the web app class loader.
+ *
+ * <pre>
+ * InProcessClient client = new InProcessClient(config, servletContext);
+ * InMemoryExchange exchange = client.get("/hello?name=Bob");
+ * int status = exchange.getResponseCode();
+ * </pre>
+ */
+public class InProcessClient {
+
+    final Config config;
+    final ServletContextImpl servletContext;
+    final InetSocketAddress localAddress;
+
+    public InProcessClient(Config config, ServletContextImpl servletContext) {
+        this(config, servletContext, new InetSocketAddress(config.server.host, config.server.port));
+    }
+
+    public InProcessClient(Config config, ServletContextImpl servletContext, InetSocketAddress localAddress) {
+        this.config = config;
+        this.servletContext = servletContext;
+        this.localAddress = localAddress;
+    }
+
+    public InMemoryExchange get(String uri) throws IOException, ServletException {
+        return execute("GET", uri, Map.of(), null);
+    }
+
+    public InMemoryExchange post(String uri, String contentType, String body) throws IOException, ServletException {
+        return execute("POST", uri, Map.of("Content-Type", List.of(contentType)), body.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Execute request, e.g. execute("GET", "/search?q=a+b", Map.of(), null).
+     * Uri is raw path with optional query, and body can be null.
+     */
+    public InMemoryExchange execute(String method, String uri, Map<String, List<String>> headers, byte[] body)
+            throws IOException, ServletException {
+        return execute(new InMemoryExchange(method, URI.create(uri), headers, body, this.localAddress));
+    }
+
+    public InMemoryExchange execute(RecordedRequest recorded) throws IOException, ServletException {
+        return execute(recorded.toExchange(this.localAddress));
+    }
+
+    /**
+     * Process exchange by ServletContextImpl.process(), and return it with
+     * response code, headers and body set.
+     */
+    public InMemoryExchange execute(InMemoryExchange exchange) throws IOException, ServletException {
+        var response = new HttpServletResponseImpl(this.config, exchange);
+        var request = new HttpServletRequestImpl(this.config, this.servletContext, exchange, response);
+        try {
+            this.servletContext.process(request, response);
+        } finally {
+            try {
+                response.cleanup();
+            } finally {
+                // remove multipart temp files even if flushing response failed:
+                request.cleanup();
+            }
+        }
+        return exchange;
+    }
+}
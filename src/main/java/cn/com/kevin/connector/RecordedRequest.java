@@ -0,0 +1,104 @@
+package cn.com.kevin.connector;
+
+import java.io.*;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Request recorded in a compact binary file:
+ *
+ * <pre>
+ * file    = magic(int "JMRQ") version(byte) record*
+ * record  = method(utf) uri(utf) headerCount(short) header* bodyLength(int) body(bytes)
+ * header  = name(utf) valueCount(short) value(utf)*
+ * </pre>
+ *
+ * where utf is the modified UTF-8 of DataOutput.writeUTF(), and uri is the raw
+ * path with query, e.g. "/hello?name=Bob".
+ */
+public record RecordedRequest(String method, String uri, Map<String, List<String>> headers, byte[] body) {
+
+    static final int MAGIC = 0x4a4d5251;
+    static final int VERSION = 1;
+
+    public InMemoryExchange toExchange(InetSocketAddress localAddress) {
+        return new InMemoryExchange(this.method, URI.create(this.uri), this.headers, this.body, localAddress);
+    }
+
+    public static void writeFileHeader(DataOutput output) throws IOException {
+        output.writeInt(MAGIC);
+        output.writeByte(VERSION);
+    }
+
+    public void writeTo(DataOutput output) throws IOException {
+        output.writeUTF(this.method);
+        output.writeUTF(this.uri);
+        output.writeShort(this.headers.size());
+        for (Map.Entry<String, List<String>> entry : this.headers.entrySet()) {
+            output.writeUTF(entry.getKey());
+            output.writeShort(entry.getValue().size());
+            for (String value : entry.getValue()) {
+                output.writeUTF(value);
+            }
+        }
+        output.writeInt(this.body.length);
+        output.write(this.body);
+    }
+
+    public static RecordedRequest readFrom(DataInput input) throws IOException {
+        String method = input.readUTF();
+        String uri = input.readUTF();
+        int headerCount = input.readUnsignedShort();
+        Map<String, List<String>> headers = new LinkedHashMap<>();
+        for (int i = 0; i < headerCount; i++) {
+            String name = input.readUTF();
+            int valueCount = input.readUnsignedShort();
+            List<String> values = new ArrayList<>(valueCount);
+            for (int j = 0; j < valueCount; j++) {
+                values.add(input.readUTF());
+            }
+            headers.put(name, values);
+        }
+        byte[] body = new byte[input.readInt()];
+        input.readFully(body);
+        return new RecordedRequest(method, uri, headers, body);
+    }
+
+    public static List<RecordedRequest> readAll(Path file) throws IOException {
+        List<RecordedRequest> list = new ArrayList<>();
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (input.readInt() != MAGIC) {
+                throw new IOException("Not a recorded requests file: " + file);
+            }
+            int version = input.readUnsignedByte();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of recorded requests file: " + file);
+            }
+            for (;;) {
+                // stop at end of file:
+                input.mark(1);
+                if (input.read() == -1) {
+                    break;
+                }
+                input.reset();
+                list.add(readFrom(input));
+            }
+        }
+        return list;
+    }
+
+    public static void writeAll(Path file, List<RecordedRequest> requests) throws IOException {
+        try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)))) {
+            writeFileHeader(output);
+            for (RecordedRequest request : requests) {
+                request.writeTo(output);
+            }
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package cn.com.kevin.connector;
+
+import com.sun.net.httpserver.Headers;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Sample requests into a recorded requests file, which can be replayed by
+ * warm-up or the Replay tool. Credentials (Cookie and Authorization headers)
+ * are not recorded.
+ */
+public class RequestRecorder implements AutoCloseable {
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    static final byte[] EMPTY = new byte[0];
+    static final Set<String> SKIP_HEADERS = Set.of("cookie", "authorization", "proxy-authorization");
+
+    final Path file;
+    final double sampleRate;
+    final int maxBody;
+    final int maxRequests;
+
+    DataOutputStream output;
+    int count = 0;
+
+    public RequestRecorder(Path file, double sampleRate, int maxBody, int maxRequests) throws IOException {
+        this.file = file;
+        this.sampleRate = sampleRate;
+        this.maxBody = maxBody;
+        this.maxRequests = maxRequests;
+        this.output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file)));
+        RecordedRequest.writeFileHeader(this.output);
+        this.output.flush();
+        logger.info("capture {}% of requests to {}", sampleRate * 100, file);
+    }
+
+    /**
+     * Record request if sampled. Request body is read in memory, so it can be
+     * read again by servlet. Requests with body larger than max body or without
+     * Content-Length are not sampled.
+     *
+     * Never throws, so a capture failure does not fail the request.
+     */
+    public void sample(HttpExchangeAdapter exchange) {
+        if (this.output == null || ThreadLocalRandom.current().nextDouble() >= this.sampleRate) {
+            return;
+        }
+        Headers headers = exchange.getRequestHeaders();
+        byte[] body = EMPTY;
+        String contentLength = headers.getFirst("Content-Length");
+        if (contentLength == null) {
+            if (headers.containsKey("Transfer-Encoding")) {
+                return;
+            }
+        } else {
+            long length;
+            try {
+                length = Long.parseLong(contentLength.trim());
+            } catch (NumberFormatException e) {
+                return;
+            }
+            if (length > this.maxBody) {
+                return;
+            }
+            if (length > 0) {
+                try {
+                    body = exchange.getRequestBody();
+                } catch (IOException e) {
+                    logger.warn("skip capture of {}: read body failed: {}", exchange.getRequestURI().getPath(), e.getMessage());
+                    return;
+                }
+            }
+        }
+        Map<String, List<String>> recordedHeaders = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> entry : headers.entrySet()) {
+            if (!SKIP_HEADERS.contains(entry.getKey().toLowerCase())) {
+                recordedHeaders.put(entry.getKey(), entry.getValue());
+            }
+        }
+        URI uri = exchange.getRequestURI();
+        String rawUri = uri.getRawQuery() == null ? uri.getRawPath() : uri.getRawPath() + "?" + uri.getRawQuery();
+        write(new RecordedRequest(exchange.getRequestMethod(), rawUri, recordedHeaders, body));
+    }
+
+    synchronized void write(RecordedRequest request) {
+        if (this.output == null) {
+            return;
+        }
+        // serialize first, so a failed request never leaves a partial record in file:
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(256 + request.body().length);
+        try {
+            request.writeTo(new DataOutputStream(buffer));
+        } catch (IOException e) {
+            // e.g. header value longer than 64K:
+            logger.warn("skip capture of {}: {}", request.uri(), e.getMessage());
+            return;
+        }
+        try {
+            buffer.writeTo(this.output);
+            this.output.flush();
+        } catch (IOException e) {
+            logger.warn("capture to {} failed, stop capture: {}", this.file, e.getMessage());
+            closeQuietly();
+            return;
+        }
+        this.count++;
+        if (this.count >= this.maxRequests) {
+            logger.info("capture done: {} requests written to {}", this.count, this.file);
+            closeQuietly();
+        }
+    }
+
+    void closeQuietly() {
+        try {
+            close();
+        } catch (IOException e) {
+            logger.warn("close capture file {} failed: {}", this.file, e.getMessage());
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (this.output != null) {
+            DataOutputStream out = this.output;
+            this.output = null;
+            out.close();
+        }
+    }
+}
@@ -0,0 +1,203 @@
+package cn.com.kevin.connector;
+
+import cn.com.kevin.engine.HttpServletRequestImpl;
+import jakarta.servlet.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Track in-flight requests, and sample stack of worker thread periodically
+ * once a request runs longer than threshold. Slow request is logged with a
+ * condensed trace (distinct stacks with sample counts) when it finishes, or
+ * while still running when max samples are taken, so hung requests are
+ * reported too.
+ *
+ * Logs are rate-limited, and suppressed logs are counted in the next one.
+ */
+public class SlowRequestWatchdog implements Runnable, AutoCloseable {
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // frames of each sampled stack to keep, from top:
+    static final int MAX_FRAMES = 16;
+    // distinct stacks to log:
+    static final int MAX_STACKS = 3;
+
+    final long thresholdNanos;
+    final long intervalMillis;
+    final int maxSamples;
+    final int maxLogsPerMinute;
+
+    final Set<InFlight> inFlights = ConcurrentHashMap.newKeySet();
+    final Thread thread;
+
+    // rate limit:
+    long windowStart = 0;
+    int logsInWindow = 0;
+    final AtomicLong suppressed = new AtomicLong();
+
+    public static class InFlight {
+        final Thread thread;
+        final long start = System.nanoTime();
+        final String method;
+        final String uri;
+        final HttpServletRequestImpl request;
+        // stack -> samples, guarded by this:
+        final Map<String, Integer> samples = new HashMap<>();
+        int sampleCount = 0;
+        boolean logged = false;
+
+        InFlight(Thread thread, String method, String uri, HttpServletRequestImpl request) {
+            this.thread = thread;
+            this.method = method;
+            this.uri = uri;
+            this.request = request;
+        }
+    }
+
+    public SlowRequestWatchdog(long thresholdMillis, long intervalMillis, int maxSamples, int maxLogsPerMinute) {
+        this.thresholdNanos = thresholdMillis * 1_000_000;
+        this.intervalMillis = Math.max(1, intervalMillis);
+        this.maxSamples = Math.max(1, maxSamples);
+        this.maxLogsPerMinute = maxLogsPerMinute;
+        this.thread = new Thread(this, "Slow-Request-Watchdog");
+        this.thread.setDaemon(true);
+        this.thread.start();
+        logger.info("slow request watchdog started: threshold {} ms, sample every {} ms.", thresholdMillis, this.intervalMillis);
+    }
+
+    /**
+     * Start tracking request processed by current thread.
+     */
+    public InFlight begin(String method, String uri, HttpServletRequestImpl request) {
+        InFlight inFlight = new InFlight(Thread.currentThread(), method, uri, request);
+        this.inFlights.add(inFlight);
+        return inFlight;
+    }
+
+    /**
+     * Stop tracking request, and log it if slow.
+     */
+    public void end(InFlight inFlight, int status) {
+        this.inFlights.remove(inFlight);
+        long nanos = System.nanoTime() - inFlight.start;
+        if (nanos < this.thresholdNanos) {
+            return;
+        }
+        synchronized (inFlight) {
+            if (inFlight.logged) {
+                // trace was logged while running:
+                logger.warn("slow request {} {} finished: status {}, {} ms.", inFlight.method, inFlight.uri, status, nanos / 1_000_000);
+            } else if (tryLog()) {
+                logger.warn("slow request {} {}: status {}, {} ms, {}{}", inFlight.method, inFlight.uri, status,
+                        nanos / 1_000_000, describe(inFlight), condensedTrace(inFlight));
+            }
+        }
+    }
+
+    @Override
+    public void run() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Thread.sleep(this.intervalMillis);
+            } catch (InterruptedException e) {
+                break;
+            }
+            long now = System.nanoTime();
+            for (InFlight inFlight : this.inFlights) {
+                if (now - inFlight.start >= this.thresholdNanos) {
+                    sample(inFlight, now);
+                }
+            }
+        }
+    }
+
+    void sample(InFlight inFlight, long now) {
+        synchronized (inFlight) {
+            if (inFlight.sampleCount >= this.maxSamples) {
+                return;
+            }
+            StackTraceElement[] stack = inFlight.thread.getStackTrace();
+            // request may be finished while taking stack:
+            if (!this.inFlights.contains(inFlight)) {
+                return;
+            }
+            StringBuilder sb = new StringBuilder(1024);
+            for (int i = 0; i < Math.min(stack.length, MAX_FRAMES); i++) {
+                sb.append("\n        at ").append(stack[i]);
+            }
+            if (stack.length > MAX_FRAMES) {
+                sb.append("\n        ... ").append(stack.length - MAX_FRAMES).append(" more");
+            }
+            inFlight.samples.merge(sb.toString(), 1, Integer::sum);
+            inFlight.sampleCount++;
+            if (inFlight.sampleCount == this.maxSamples && tryLog()) {
+                inFlight.logged = true;
+                logger.warn("slow request {} {} still running: {} ms, {}{}", inFlight.method, inFlight.uri,
+                        (now - inFlight.start) / 1_000_000, describe(inFlight), condensedTrace(inFlight));
+            }
+        }
+    }
+
+    // e.g. "mapping /api/*, servlet ApiServlet, filters [LogFilter, AuthFilter], thread pool-1-thread-3"
+    static String describe(InFlight inFlight) {
+        HttpServletRequestImpl request = inFlight.request;
+        Filter[] filters = request.getFilters();
+        String filterNames = filters == null ? "[]"
+                : Arrays.toString(Arrays.stream(filters).map(f -> f.getClass().getName()).toArray());
+        return String.format("mapping %s, servlet %s, filters %s, thread %s", request.getServletMappingPattern(),
+                request.getServletName(), filterNames, inFlight.thread.getName());
+    }
+
+    // distinct stacks sorted by samples:
+    static String condensedTrace(InFlight inFlight) {
+        if (inFlight.sampleCount == 0) {
+            return "";
+        }
+        List<Map.Entry<String, Integer>> stacks = new ArrayList<>(inFlight.samples.entrySet());
+        stacks.sort(Map.Entry.<String, Integer>comparingByValue().reversed());
+        StringBuilder sb = new StringBuilder(4096);
+        sb.append(", ").append(inFlight.sampleCount).append(" stack samples:");
+        for (int i = 0; i < Math.min(stacks.size(), MAX_STACKS); i++) {
+            var entry = stacks.get(i);
+            sb.append("\n    ").append(entry.getValue()).append('/').append(inFlight.sampleCount).append(" samples:")
+                    .append(entry.getKey());
+        }
+        if (stacks.size() > MAX_STACKS) {
+            sb.append("\n    ... ").append(stacks.size() - MAX_STACKS).append(" more distinct stacks");
+        }
+        return sb.toString();
+    }
+
+    // allow max logs per minute:
+    synchronized boolean tryLog() {
+        long now = System.currentTimeMillis();
+        if (now - this.windowStart >= 60_000) {
+            long n = this.suppressed.getAndSet(0);
+            if (n > 0) {
+                logger.warn("{} slow request logs suppressed in last minute.", n);
+            }
+            this.windowStart = now;
+            this.logsInWindow = 0;
+        }
+        if (this.logsInWindow < this.maxLogsPerMinute) {
+            this.logsInWindow++;
+            return true;
+        }
+        this.suppressed.incrementAndGet();
+        return false;
+    }
+
+    @Override
+    public void close() {
+        this.thread.interrupt();
+    }
+}
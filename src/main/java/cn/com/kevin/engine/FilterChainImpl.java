@@ -1,6 +1,10 @@
 package cn.com.kevin.engine;
 
+import cn.com.kevin.jfr.FilterEvent;
+import cn.com.kevin.jfr.ServletEvent;
 import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import java.io.IOException;
 
@@ -22,10 +26,44 @@ public class FilterChainImpl implements FilterChain {
             int current = index;
             index++;
             // 调用下一个Filter处理:
-            filters[current].doFilter(request, response, this);
+            FilterEvent event = new FilterEvent();
+            event.begin();
+            try {
+                filters[current].doFilter(request, response, this);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.uri = uriOf(request);
+                    event.mapping = mappingOf(request);
+                    event.filter = filters[current].getClass().getName();
+                    event.position = current;
+                    event.commit();
+                }
+            }
         } else {
             // 调用Servlet处理:
-            servlet.service(request, response);
+            ServletEvent event = new ServletEvent();
+            event.begin();
+            try {
+                servlet.service(request, response);
+            } finally {
+                event.end();
+                if (event.shouldCommit()) {
+                    event.uri = uriOf(request);
+                    event.mapping = mappingOf(request);
+                    event.servlet = servlet.getClass().getName();
+                    event.status = response instanceof HttpServletResponse r ? r.getStatus() : 0;
+                    event.commit();
+                }
+            }
         }
     }
+
+    static String uriOf(ServletRequest request) {
+        return request instanceof HttpServletRequest r ? r.getRequestURI() : null;
+    }
+
+    static String mappingOf(ServletRequest request) {
+        return request instanceof HttpServletRequestImpl r ? r.getServletMappingPattern() : null;
+    }
 }
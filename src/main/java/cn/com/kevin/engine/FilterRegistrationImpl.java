@@ -12,7 +12,7 @@ public class FilterRegistrationImpl implements FilterRegistration.Dynamic {
 
     final InitParameters initParameters = new InitParameters();
     final List<String> urlPatterns = new ArrayList<>(4);
-    boolean initialized = false;
+    volatile boolean initialized = false;
 
     public FilterRegistrationImpl(ServletContext servletContext, String name, Filter filter) {
         this.servletContext = servletContext;
@@ -5,13 +5,17 @@ import cn.com.kevin.connector.HttpExchangeRequest;
 import cn.com.kevin.engine.support.Attributes;
 import cn.com.kevin.engine.support.HttpHeaders;
 import cn.com.kevin.engine.support.Parameters;
+import cn.com.kevin.jfr.RequestParseEvent;
 import cn.com.kevin.utils.HttpUtils;
 import jakarta.servlet.*;
 import jakarta.servlet.http.*;
 
 import java.io.*;
 import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.security.Principal;
 import java.util.*;
 
@@ -31,6 +35,18 @@ public class HttpServletRequestImpl implements HttpServletRequest {
     int contentLength = 0;
     String requestId = null;
     Attributes attributes = new Attributes();
+    // name of servlet which handles this request:
+    String servletName = null;
+    // url pattern of matched servlet mapping, null if not matched:
+    String servletMapping = null;
+    // filters of matched servlet mapping:
+    Filter[] filters = null;
+    // parsed multipart/form-data parts:
+    List<PartImpl> parts = null;
+    // failure of parsing parts, rethrown since body is consumed:
+    Exception partsError = null;
+    // System.nanoTime() when request arrived, used by deadline:
+    long arrivalNanos = System.nanoTime();
 
     //
     private boolean inputCalled;
@@ -267,16 +283,79 @@ public class HttpServletRequestImpl implements HttpServletRequest {
 
     @Override
     public Collection<Part> getParts() throws IOException, ServletException {
-        // not support multipart:
-        return List.of();
+        if (this.parts == null) {
+            if (this.partsError == null) {
+                try {
+                    this.parts = parseParts();
+                } catch (IOException | ServletException | RuntimeException e) {
+                    this.partsError = e;
+                    throw e;
+                }
+            } else if (this.partsError instanceof IOException e) {
+                throw e;
+            } else if (this.partsError instanceof ServletException e) {
+                throw e;
+            } else {
+                throw (RuntimeException) this.partsError;
+            }
+        }
+        return Collections.unmodifiableList(this.parts);
     }
 
     @Override
     public Part getPart(String name) throws IOException, ServletException {
-        // not support multipart:
+        for (Part part : getParts()) {
+            if (name.equals(part.getName())) {
+                return part;
+            }
+        }
         return null;
     }
 
+    List<PartImpl> parseParts() throws IOException, ServletException {
+        String contentType = getContentType();
+        if (contentType == null || !contentType.regionMatches(true, 0, "multipart/form-data", 0, 19)) {
+            throw new ServletException("Request is not multipart/form-data.");
+        }
+        ServletRegistrationImpl registration = this.servletName == null ? null : this.servletContext.servletRegistrations.get(this.servletName);
+        MultipartConfigElement config = registration == null ? null : registration.multipartConfig;
+        if (config == null) {
+            throw new IllegalStateException("No multipart config for servlet: " + this.servletName);
+        }
+        String boundary = MultipartParser.getBoundary(contentType);
+        if (boundary == null) {
+            throw new ServletException("Missing boundary of multipart/form-data.");
+        }
+        if (config.getMaxRequestSize() >= 0 && this.contentLength > config.getMaxRequestSize()) {
+            throw new IllegalStateException("Multipart request exceeds max request size: " + config.getMaxRequestSize());
+        }
+        // relative location is resolved against temp dir:
+        Path location = Path.of(System.getProperty("java.io.tmpdir")).resolve(config.getLocation());
+        Files.createDirectories(location);
+        RequestParseEvent event = new RequestParseEvent();
+        event.begin();
+        try (InputStream input = this.exchangeRequest.getRequestBodyStream()) {
+            var parser = new MultipartParser(input, boundary, Charset.forName(this.characterEncoding), location, config);
+            return parser.parse();
+        } finally {
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = this.method;
+                event.uri = getRequestURI();
+                event.kind = RequestParseEvent.MULTIPART;
+                event.commit();
+            }
+        }
+    }
+
+    public void cleanup() throws IOException {
+        if (this.parts != null) {
+            for (PartImpl part : this.parts) {
+                part.cleanup();
+            }
+        }
+    }
+
     @Override
     public <T extends HttpUpgradeHandler> T upgrade(Class<T> aClass) throws IOException, ServletException {
         // not support websocket:
@@ -311,7 +390,7 @@ public class HttpServletRequestImpl implements HttpServletRequest {
 
     @Override
     public long getContentLengthLong() {
-        return 0;
+        return this.contentLength;
     }
 
     @Override
@@ -461,6 +540,36 @@ public class HttpServletRequestImpl implements HttpServletRequest {
         return DispatcherType.REQUEST;
     }
 
+    /**
+     * Get url pattern of servlet mapping which processed this request, e.g.
+     * "/api/*", or null if not matched.
+     */
+    public String getServletMappingPattern() {
+        return this.servletMapping;
+    }
+
+    /**
+     * Set System.nanoTime() when request arrived, e.g. when queued by
+     * connector, so time waiting in queue is counted in deadline.
+     */
+    public void setArrivalNanos(long arrivalNanos) {
+        this.arrivalNanos = arrivalNanos;
+    }
+
+    /**
+     * Get name of servlet which processed this request, or null if not matched.
+     */
+    public String getServletName() {
+        return this.servletName;
+    }
+
+    /**
+     * Get filters which processed this request, or null if not matched.
+     */
+    public Filter[] getFilters() {
+        return this.filters;
+    }
+
     @Override
     public String toString() {
         return String.format("HttpServletRequestImpl@%s[%s:%s]", Integer.toHexString(hashCode()), getMethod(), getRequestURI());
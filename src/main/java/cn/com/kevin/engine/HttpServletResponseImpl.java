@@ -3,6 +3,7 @@ package cn.com.kevin.engine;
 import cn.com.kevin.Config;
 import cn.com.kevin.connector.HttpExchangeResponse;
 import cn.com.kevin.engine.support.HttpHeaders;
+import cn.com.kevin.jfr.ResponseCommitEvent;
 import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.Cookie;
 import jakarta.servlet.http.HttpServletResponse;
@@ -30,7 +31,10 @@ public class HttpServletResponseImpl implements HttpServletResponse {
     long contentLength = 0;
     Locale locale = null;
     List<Cookie> cookies = null;
-    boolean committed = false;
+    // written by abort() of another thread:
+    volatile boolean committed = false;
+    // set if aborted by another thread, e.g. request deadline:
+    boolean aborted = false;
 
     public HttpServletResponseImpl(Config config, HttpExchangeResponse exchangeResponse) {
         this.config = config;
@@ -235,9 +239,50 @@ public class HttpServletResponseImpl implements HttpServletResponse {
         this.headers.addIntHeader(name, value);
     }
 
-    void commitHeaders(long length) throws IOException {
+    // synchronized with abort():
+    synchronized void commitHeaders(long length) throws IOException {
+        if (this.aborted) {
+            throw new IOException("Response is aborted.");
+        }
+        sendHeaders(length);
+    }
+
+    // caller must hold lock:
+    void sendHeaders(long length) throws IOException {
+        ResponseCommitEvent event = new ResponseCommitEvent();
+        event.begin();
         this.exchangeResponse.sendResponseHeaders(this.status, length);
         this.committed = true;
+        event.end();
+        if (event.shouldCommit()) {
+            event.status = this.status;
+            event.contentLength = length;
+            event.commit();
+        }
+    }
+
+    /**
+     * Abort response by another thread: send status without body if not
+     * committed, and later output of request thread fails. Return false if
+     * already committed.
+     */
+    public synchronized boolean abort(int sc) throws IOException {
+        if (this.committed) {
+            return false;
+        }
+        this.status = sc;
+        // set first, so output of request thread fails even if sending fails:
+        this.aborted = true;
+        sendHeaders(-1);
+        return true;
+    }
+
+    /**
+     * Close exchange by another thread after response is committed, so
+     * blocked or later output of request thread fails.
+     */
+    public void closeExchange() {
+        this.exchangeResponse.close();
     }
 
     public void cleanup() throws IOException {
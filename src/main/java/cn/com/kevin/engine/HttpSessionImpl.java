@@ -1,6 +1,7 @@
 package cn.com.kevin.engine;
 
 import cn.com.kevin.engine.support.Attributes;
+import cn.com.kevin.utils.CachedClock;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.http.HttpSession;
 import jakarta.servlet.http.HttpSessionContext;
@@ -13,12 +14,14 @@ public class HttpSessionImpl implements HttpSession {
     int maxInactiveInterval;
     long creationTime;
     long lastAccessedTime;
+    // timestamps come from a coarse clock, so isNew() cannot compare them:
+    boolean isNew = true;
     Attributes attributes;
 
     public HttpSessionImpl(ServletContextImpl servletContext, String sessionId, int interval) {
         this.servletContext = servletContext;
         this.sessionId = sessionId;
-        this.creationTime = this.lastAccessedTime = System.currentTimeMillis();
+        this.creationTime = this.lastAccessedTime = CachedClock.currentTimeMillis();
         this.attributes = new Attributes(true);
         setMaxInactiveInterval(interval);
     }
@@ -118,7 +121,7 @@ public class HttpSessionImpl implements HttpSession {
 
     @Override
     public boolean isNew() {
-        return this.creationTime == this.lastAccessedTime;
+        return this.isNew;
     }
 
     void checkValid() {
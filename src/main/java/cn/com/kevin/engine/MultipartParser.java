@@ -0,0 +1,263 @@
+package cn.com.kevin.engine;
+
+import cn.com.kevin.engine.support.HttpHeaders;
+import com.sun.net.httpserver.Headers;
+import jakarta.servlet.MultipartConfigElement;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming multipart/form-data parser.
+ *
+ * The request body is read through a fixed size buffer and each part is written
+ * to its PartImpl as soon as it is known not to contain the boundary, so the
+ * whole body is never held in memory.
+ */
+public class MultipartParser {
+    static final int BUFFER_SIZE = 8192;
+    // max size of headers of one part:
+    static final int MAX_HEADER_SIZE = 16 * 1024;
+
+    final InputStream input;
+    final Charset charset;
+    final Path location;
+    final long maxFileSize;
+    final long maxRequestSize;
+    final long fileSizeThreshold;
+    // "\r\n--" + boundary:
+    final byte[] delimiter;
+
+    final byte[] buffer;
+    int pos = 0;
+    int limit = 0;
+    long total = 0;
+
+    public MultipartParser(InputStream input, String boundary, Charset charset, Path location, MultipartConfigElement config) {
+        this.input = input;
+        this.charset = charset;
+        this.location = location;
+        this.maxFileSize = config.getMaxFileSize();
+        this.maxRequestSize = config.getMaxRequestSize();
+        this.fileSizeThreshold = config.getFileSizeThreshold();
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buffer = new byte[Math.max(BUFFER_SIZE, this.delimiter.length * 2)];
+    }
+
+    /**
+     * Get boundary from Content-Type header, or null if not found.
+     */
+    public static String getBoundary(String contentType) {
+        for (String s : contentType.split(";")) {
+            s = s.strip();
+            if (s.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String boundary = s.substring(9);
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary.isEmpty() ? null : boundary;
+            }
+        }
+        return null;
+    }
+
+    public List<PartImpl> parse() throws IOException {
+        List<PartImpl> parts = new ArrayList<>();
+        try {
+            // the first boundary has no leading CRLF:
+            if (!skipTo(this.delimiter, 2)) {
+                throw new IOException("Boundary not found in multipart request.");
+            }
+            while (!isLastBoundary()) {
+                PartImpl part = readHeaders();
+                parts.add(part);
+                readBody(part);
+            }
+        } catch (IOException | RuntimeException e) {
+            for (PartImpl part : parts) {
+                part.cleanup();
+            }
+            throw e;
+        }
+        return parts;
+    }
+
+    // skip bytes until delimiter[offset..] is found, and position after it:
+    boolean skipTo(byte[] pattern, int offset) throws IOException {
+        int len = pattern.length - offset;
+        for (;;) {
+            int n = indexOf(pattern, offset, len);
+            if (n >= 0) {
+                this.pos = n + len;
+                return true;
+            }
+            this.pos = Math.max(this.pos, this.limit - len + 1);
+            if (!fill()) {
+                return false;
+            }
+        }
+    }
+
+    // after a boundary: "--" means end of multipart, CRLF means next part:
+    boolean isLastBoundary() throws IOException {
+        if (!ensure(2)) {
+            throw new IOException("Unexpected end of multipart request.");
+        }
+        byte b1 = this.buffer[this.pos];
+        byte b2 = this.buffer[this.pos + 1];
+        this.pos += 2;
+        if (b1 == '-' && b2 == '-') {
+            return true;
+        }
+        if (b1 == '\r' && b2 == '\n') {
+            return false;
+        }
+        throw new IOException("Invalid multipart boundary.");
+    }
+
+    PartImpl readHeaders() throws IOException {
+        HttpHeaders headers = new HttpHeaders(new Headers());
+        int headerSize = 0;
+        for (;;) {
+            String line = readLine();
+            if (line.isEmpty()) {
+                break;
+            }
+            headerSize += line.length();
+            if (headerSize > MAX_HEADER_SIZE) {
+                throw new IOException("Multipart headers too large.");
+            }
+            int n = line.indexOf(':');
+            if (n > 0) {
+                headers.addHeader(line.substring(0, n).strip(), line.substring(n + 1).strip());
+            }
+        }
+        String disposition = headers.getHeader("Content-Disposition");
+        if (disposition == null) {
+            throw new IOException("Missing Content-Disposition in multipart request.");
+        }
+        String name = getDispositionParam(disposition, "name");
+        String fileName = getDispositionParam(disposition, "filename");
+        return new PartImpl(name, fileName, headers, this.location, this.fileSizeThreshold);
+    }
+
+    void readBody(PartImpl part) throws IOException {
+        try {
+            for (;;) {
+                int n = indexOf(this.delimiter, 0, this.delimiter.length);
+                if (n >= 0) {
+                    writePart(part, n - this.pos);
+                    this.pos = n + this.delimiter.length;
+                    return;
+                }
+                // bytes before the last (delimiter.length - 1) bytes cannot be part of delimiter:
+                int safe = this.limit - this.delimiter.length + 1;
+                if (safe > this.pos) {
+                    writePart(part, safe - this.pos);
+                    this.pos = safe;
+                }
+                if (!fill()) {
+                    throw new IOException("Unexpected end of multipart request.");
+                }
+            }
+        } finally {
+            part.finish();
+        }
+    }
+
+    void writePart(PartImpl part, int len) throws IOException {
+        if (this.maxFileSize >= 0 && part.size + len > this.maxFileSize) {
+            throw new IllegalStateException("Part '" + part.getName() + "' exceeds max file size: " + this.maxFileSize);
+        }
+        part.write(this.buffer, this.pos, len);
+    }
+
+    String readLine() throws IOException {
+        // bytes after pos which are already scanned:
+        int scanned = 0;
+        for (;;) {
+            for (int i = this.pos + scanned; i < this.limit - 1; i++) {
+                if (this.buffer[i] == '\r' && this.buffer[i + 1] == '\n') {
+                    String line = new String(this.buffer, this.pos, i - this.pos, this.charset);
+                    this.pos = i + 2;
+                    return line;
+                }
+            }
+            scanned = Math.max(0, this.limit - 1 - this.pos);
+            if (this.limit - this.pos >= this.buffer.length) {
+                throw new IOException("Multipart header line too long.");
+            }
+            if (!fill()) {
+                throw new IOException("Unexpected end of multipart request.");
+            }
+        }
+    }
+
+    boolean ensure(int n) throws IOException {
+        while (this.limit - this.pos < n) {
+            if (!fill()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // compact buffer and read more bytes, return false if EOF:
+    boolean fill() throws IOException {
+        if (this.pos > 0) {
+            System.arraycopy(this.buffer, this.pos, this.buffer, 0, this.limit - this.pos);
+            this.limit -= this.pos;
+            this.pos = 0;
+        }
+        if (this.limit == this.buffer.length) {
+            return true;
+        }
+        int n = this.input.read(this.buffer, this.limit, this.buffer.length - this.limit);
+        if (n < 0) {
+            return false;
+        }
+        this.total += n;
+        if (this.maxRequestSize >= 0 && this.total > this.maxRequestSize) {
+            throw new IllegalStateException("Multipart request exceeds max request size: " + this.maxRequestSize);
+        }
+        this.limit += n;
+        return true;
+    }
+
+    int indexOf(byte[] pattern, int offset, int len) {
+        byte first = pattern[offset];
+        int last = this.limit - len;
+        outer: for (int i = this.pos; i <= last; i++) {
+            if (this.buffer[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < len; j++) {
+                if (this.buffer[i + j] != pattern[offset + j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    static String getDispositionParam(String disposition, String name) {
+        for (String s : disposition.split(";")) {
+            s = s.strip();
+            int n = s.indexOf('=');
+            if (n > 0 && s.substring(0, n).strip().equalsIgnoreCase(name)) {
+                String value = s.substring(n + 1).strip();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,146 @@
+package cn.com.kevin.engine;
+
+import cn.com.kevin.engine.support.HttpHeaders;
+import jakarta.servlet.http.Part;
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Part of multipart/form-data request.
+ *
+ * Content is kept in memory until it grows beyond the file size threshold, then
+ * it is spilled to a temp file under the multipart location.
+ */
+public class PartImpl implements Part {
+    final String name;
+    final String submittedFileName;
+    final HttpHeaders headers;
+    // directory of temp file and relative path of write():
+    final Path location;
+    final long fileSizeThreshold;
+
+    ByteArrayOutputStream memory = new ByteArrayOutputStream();
+    Path file = null;
+    // false once the temp file is moved by write(), then file is the written target and never deleted:
+    boolean temporary = true;
+    OutputStream fileOutput = null;
+    long size = 0;
+
+    PartImpl(String name, String submittedFileName, HttpHeaders headers, Path location, long fileSizeThreshold) {
+        this.name = name;
+        this.submittedFileName = submittedFileName;
+        this.headers = headers;
+        this.location = location;
+        this.fileSizeThreshold = fileSizeThreshold;
+    }
+
+    void write(byte[] b, int off, int len) throws IOException {
+        if (this.file == null && this.size + len > this.fileSizeThreshold) {
+            // spill to disk:
+            this.file = Files.createTempFile(this.location, "upload_", ".tmp");
+            this.fileOutput = new BufferedOutputStream(Files.newOutputStream(this.file));
+            this.memory.writeTo(this.fileOutput);
+            this.memory = null;
+        }
+        if (this.file == null) {
+            this.memory.write(b, off, len);
+        } else {
+            this.fileOutput.write(b, off, len);
+        }
+        this.size += len;
+    }
+
+    void finish() throws IOException {
+        if (this.fileOutput != null) {
+            this.fileOutput.close();
+            this.fileOutput = null;
+        }
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        if (this.file == null) {
+            return new ByteArrayInputStream(this.memory.toByteArray());
+        }
+        return new BufferedInputStream(Files.newInputStream(this.file));
+    }
+
+    @Override
+    public String getContentType() {
+        return this.headers.getHeader("Content-Type");
+    }
+
+    @Override
+    public String getName() {
+        return this.name;
+    }
+
+    @Override
+    public String getSubmittedFileName() {
+        return this.submittedFileName;
+    }
+
+    @Override
+    public long getSize() {
+        return this.size;
+    }
+
+    @Override
+    public void write(String fileName) throws IOException {
+        Path target = this.location.resolve(fileName);
+        if (this.file == null) {
+            Files.write(target, this.memory.toByteArray());
+        } else {
+            // move temp file instead of copying:
+            Files.move(this.file, target, StandardCopyOption.REPLACE_EXISTING);
+            this.file = target;
+            this.temporary = false;
+        }
+    }
+
+    @Override
+    public void delete() throws IOException {
+        finish();
+        // only temp storage is deleted, not the file saved by write():
+        if (this.file != null && this.temporary) {
+            Files.deleteIfExists(this.file);
+        }
+        this.memory = new ByteArrayOutputStream();
+        this.file = null;
+        this.size = 0;
+    }
+
+    // delete temp file after request is processed:
+    void cleanup() throws IOException {
+        delete();
+    }
+
+    @Override
+    public String getHeader(String name) {
+        return this.headers.getHeader(name);
+    }
+
+    @Override
+    public Collection<String> getHeaders(String name) {
+        List<String> hs = this.headers.getHeaders(name);
+        if (hs == null) {
+            return List.of();
+        }
+        return hs;
+    }
+
+    @Override
+    public Collection<String> getHeaderNames() {
+        return this.headers.getHeaderNames();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("PartImpl@%s[name=%s, size=%s, file=%s]", Integer.toHexString(hashCode()), this.name, this.size, this.file);
+    }
+}
@@ -0,0 +1,120 @@
+package cn.com.kevin.engine;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Deadline of a request being processed. When it expires before processing
+ * finishes, the response is aborted with 504 if not committed yet, and the
+ * worker thread is interrupted so blocking calls (I/O, locks, sleep) return
+ * early. If the response is already committed (the output stream or writer
+ * is opened), the exchange is closed after the interrupt, so blocked or later
+ * output fails. Interrupt status is cleared when processing finishes, so it
+ * is not leaked to the next request of the pooled thread.
+ */
+public class RequestDeadline implements Runnable {
+    static final Logger logger = LoggerFactory.getLogger(RequestDeadline.class);
+
+    /**
+     * Request attribute of deadline as java.time.Instant, so downstream calls
+     * can use the remaining time, e.g. Duration.between(Instant.now(), deadline).
+     */
+    public static final String ATTRIBUTE = "cn.com.kevin.request.deadline";
+
+    final Thread thread;
+    final HttpServletResponseImpl response;
+    final String path;
+    // guarded by this:
+    boolean done = false;
+    boolean expired = false;
+    boolean interrupted = false;
+    ScheduledFuture<?> future;
+
+    RequestDeadline(Thread thread, HttpServletResponseImpl response, String path) {
+        this.thread = thread;
+        this.response = response;
+        this.path = path;
+    }
+
+    // called by timer when expired:
+    @Override
+    public synchronized void run() {
+        if (this.done) {
+            return;
+        }
+        this.expired = true;
+        boolean aborted = false;
+        try {
+            aborted = this.response.abort(504);
+        } catch (IOException e) {
+            logger.warn("abort response of {} failed: {}", this.path, e.getMessage());
+        }
+        this.interrupted = true;
+        this.thread.interrupt();
+        if (aborted) {
+            logger.warn("request {} exceeded deadline, abort with 504.", this.path);
+        } else {
+            // interrupt first, which closes channel of blocked I/O, so closing exchange does not block timer:
+            this.response.closeExchange();
+            logger.warn("request {} exceeded deadline after response is committed, close exchange.", this.path);
+        }
+    }
+
+    /**
+     * Finish by worker thread, return true if expired.
+     */
+    boolean finish() {
+        synchronized (this) {
+            this.done = true;
+        }
+        this.future.cancel(false);
+        if (this.interrupted) {
+            // clear interrupt status set by timer:
+            Thread.interrupted();
+        }
+        return this.expired;
+    }
+
+    /**
+     * Deadlines in milliseconds per servlet url pattern, and timer to expire
+     * them.
+     */
+    static class Timer {
+        final long defaultMillis;
+        final Map<String, Integer> mappings;
+        final ScheduledExecutorService scheduler;
+
+        Timer(long defaultMillis, Map<String, Integer> mappings) {
+            this.defaultMillis = defaultMillis;
+            this.mappings = mappings;
+            this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "Request-Deadline-Timer");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+
+        // 0 = no deadline:
+        long millisOf(String urlPattern) {
+            Integer millis = this.mappings.get(urlPattern);
+            return millis == null ? this.defaultMillis : millis;
+        }
+
+        RequestDeadline schedule(HttpServletResponseImpl response, String path, long remainingNanos) {
+            RequestDeadline deadline = new RequestDeadline(Thread.currentThread(), response, path);
+            deadline.future = this.scheduler.schedule(deadline, remainingNanos, TimeUnit.NANOSECONDS);
+            return deadline;
+        }
+
+        void shutdown() {
+            this.scheduler.shutdownNow();
+        }
+    }
+}
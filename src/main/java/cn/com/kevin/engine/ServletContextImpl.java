@@ -1,11 +1,17 @@
 package cn.com.kevin.engine;
 
 import cn.com.kevin.Config;
+import cn.com.kevin.Start;
+import cn.com.kevin.classloader.WarArchive;
+import cn.com.kevin.classloader.WebAppClassLoader;
+import cn.com.kevin.classloader.ZipIndex;
 import cn.com.kevin.engine.mapping.FilterMapping;
 import cn.com.kevin.engine.mapping.ServletMapping;
 import cn.com.kevin.engine.servlet.DefaultServlet;
 import cn.com.kevin.engine.support.Attributes;
+import cn.com.kevin.engine.support.MimeTypes;
 import cn.com.kevin.utils.AnnoUtils;
+import cn.com.kevin.utils.StartupProfiler;
 import jakarta.servlet.*;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.annotation.WebListener;
@@ -21,9 +27,16 @@ import java.io.PrintWriter;
 import java.lang.reflect.Constructor;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ServletContextImpl implements ServletContext {
     final Logger logger = LoggerFactory.getLogger(getClass());
@@ -32,8 +45,14 @@ public class ServletContextImpl implements ServletContext {
     final Config config;
     // web root dir:
     final Path webRoot;
+    // not null if running directly from war:
+    final WarArchive war;
     // session manager:
     final SessionManager sessionManager;
+    // mime types:
+    final MimeTypes mimeTypes;
+    // null if no deadline is configured:
+    final RequestDeadline.Timer deadlineTimer;
 
     private boolean initialized = false;
 
@@ -64,7 +83,12 @@ public class ServletContextImpl implements ServletContext {
         this.config = config;
         this.sessionCookieConfig = new SessionCookieConfigImpl(config);
         this.webRoot = Paths.get(webRoot).normalize().toAbsolutePath();
+        this.war = classLoader instanceof WebAppClassLoader wacl ? wacl.getWarArchive() : null;
         this.sessionManager = new SessionManager(this, config.server.webApp.sessionTimeout);
+        this.mimeTypes = new MimeTypes(config.server.mimeTypes, config.server.mimeDefault, config.server.responseEncoding);
+        Config.Deadline deadline = config.server.deadline;
+        this.deadlineTimer = deadline.defaultMillis > 0 || !deadline.mappings.isEmpty()
+                ? new RequestDeadline.Timer(deadline.defaultMillis, deadline.mappings) : null;
         logger.info("set web root: {}", this.webRoot);
     }
 
@@ -72,21 +96,34 @@ public class ServletContextImpl implements ServletContext {
         // 获取请求路径:
         String path = request.getRequestURI();
         // 查找Servlet:
-        Servlet servlet = null;
+        ServletMapping servletMapping = null;
         for (ServletMapping mapping : this.servletMappings) {
             if (mapping.matches(path)) {
-                servlet = mapping.servlet;
+                servletMapping = mapping;
                 break;
             }
         }
 
-        if (servlet == null) {
+        if (servletMapping == null) {
             // 404 Not Found:
             PrintWriter pw = response.getWriter();
             pw.write("<h1>404 Not Found</h1><p>No mapping for URL: " + path + "</p>");
             pw.close();
             return;
         }
+        Servlet servlet = servletMapping.servlet;
+        var registration = this.servletRegistrations.get(servletMapping.servletName);
+        if (registration != null && !registration.initialized
+                && (registration.unavailable || !initServletLazily(registration))) {
+            // init failed, servlet is unavailable:
+            response.sendError(503);
+            return;
+        }
+        if (request instanceof HttpServletRequestImpl impl) {
+            // used by getParts() to find multipart config:
+            impl.servletName = servletMapping.servletName;
+            impl.servletMapping = servletMapping.getUrlPattern();
+        }
 
         // 查找Filter:
         List<Filter> enabledFilters = new ArrayList<>();
@@ -96,7 +133,27 @@ public class ServletContextImpl implements ServletContext {
             }
         }
         Filter[] filters = enabledFilters.toArray(Filter[]::new);
+        if (request instanceof HttpServletRequestImpl impl) {
+            impl.filters = filters;
+        }
         logger.atDebug().log("process {} by filter {}, servlet {}", path, Arrays.toString(filters), servlet);
+        // 检查deadline:
+        RequestDeadline deadline = null;
+        if (this.deadlineTimer != null && request instanceof HttpServletRequestImpl impl
+                && response instanceof HttpServletResponseImpl resp) {
+            long millis = this.deadlineTimer.millisOf(servletMapping.getUrlPattern());
+            if (millis > 0) {
+                long remaining = impl.arrivalNanos + millis * 1_000_000 - System.nanoTime();
+                if (remaining <= 0) {
+                    // waited in queue too long, reject without processing:
+                    logger.warn("request {} exceeded deadline {} ms before processing, reject.", path, millis);
+                    resp.sendError(503);
+                    return;
+                }
+                request.setAttribute(RequestDeadline.ATTRIBUTE, Instant.now().plusNanos(remaining));
+                deadline = this.deadlineTimer.schedule(resp, path, remaining);
+            }
+        }
         // 构造FilterChain实例:
         FilterChain chain = new FilterChainImpl(filters, servlet);
         // 由FilterChain处理:
@@ -106,12 +163,23 @@ public class ServletContextImpl implements ServletContext {
             this.invokeServletRequestInitialized(request);
             chain.doFilter(request, response);
         } catch (ServletException e) {
+            if (deadline != null && deadline.finish()) {
+                logger.warn("request {} aborted by deadline: {}", path, e.getMessage());
+                return;
+            }
             logger.error(e.getMessage(), e);
             throw new IOException(e);
         } catch (IOException e) {
+            if (deadline != null && deadline.finish()) {
+                logger.warn("request {} aborted by deadline: {}", path, e.getMessage());
+                return;
+            }
             logger.error(e.getMessage(), e);
             throw e;
         } finally {
+            if (deadline != null) {
+                deadline.finish();
+            }
             this.invokeServletRequestDestroyed(request);
         }
     }
@@ -250,14 +318,25 @@ public class ServletContextImpl implements ServletContext {
 
     @Override
     public String getMimeType(String file) {
-        String defaultMime = "application/octet-stream";
-        Map<String, String> mimes = Map.of(".html", "text/html", ".txt", "text/plain", ".png", "image/png", ".jpg", "image/jpeg");
-        int n = file.lastIndexOf('.');
-        if (n == -1) {
-            return defaultMime;
-        }
-        String ext = file.substring(n);
-        return mimes.getOrDefault(ext, defaultMime);
+        return this.mimeTypes.getMimeType(file);
+    }
+
+    /**
+     * Get Content-Type header value of file, with charset for text types.
+     */
+    public String getContentType(String file) {
+        return this.mimeTypes.getContentType(file);
+    }
+
+    public int getSessionCount() {
+        return this.sessionManager.getSessionCount();
+    }
+
+    /**
+     * Get war if running directly from war, or null if from web root dir.
+     */
+    public WarArchive getWarArchive() {
+        return this.war;
     }
 
     @Override
@@ -266,13 +345,29 @@ public class ServletContextImpl implements ServletContext {
     }
 
     @Override
-    public URL getResource(String s) throws MalformedURLException {
-        return null;
+    public URL getResource(String path) throws MalformedURLException {
+        if (!path.startsWith("/")) {
+            throw new MalformedURLException("Path must start with '/': " + path);
+        }
+        if (this.war != null) {
+            ZipIndex.Entry entry = this.war.getEntry(path.substring(1));
+            return entry == null ? null : this.war.toURL(entry);
+        }
+        String realPath = getRealPath(path);
+        if (realPath == null || !Files.exists(Paths.get(realPath))) {
+            return null;
+        }
+        return Paths.get(realPath).toUri().toURL();
     }
 
     @Override
-    public InputStream getResourceAsStream(String s) {
-        return null;
+    public InputStream getResourceAsStream(String path) {
+        try {
+            URL url = getResource(path);
+            return url == null ? null : url.openStream();
+        } catch (IOException e) {
+            return null;
+        }
     }
 
     @Override
@@ -317,6 +412,10 @@ public class ServletContextImpl implements ServletContext {
 
     @Override
     public String getRealPath(String path) {
+        if (this.war != null) {
+            // resources in war have no real path:
+            return null;
+        }
         if (path.startsWith("/")) {
             path = path.substring(1);
         }
@@ -842,7 +941,12 @@ public class ServletContextImpl implements ServletContext {
         }
 
         // 执行 ServletContextListener 处理
-        this.invokeServletContextInitialized();
+        StartupProfiler.Phase listenerPhase = StartupProfiler.begin("listener-init");
+        try {
+            this.invokeServletContextInitialized();
+        } finally {
+            listenerPhase.close();
+        }
 
         // register @WebServlet and @WebFilter:
         for (Class<?> c : autoScannedClasses) {
@@ -858,6 +962,12 @@ public class ServletContextImpl implements ServletContext {
                 registration.addMapping(AnnoUtils.getServletUrlPatterns(clazz));
                 // servlet 初始化参数
                 registration.setInitParameters(AnnoUtils.getServletInitParams(clazz));
+                registration.setLoadOnStartup(AnnoUtils.getServletLoadOnStartup(clazz));
+                // @MultipartConfig
+                MultipartConfigElement multipartConfig = AnnoUtils.getServletMultipartConfig(clazz);
+                if (multipartConfig != null) {
+                    registration.setMultipartConfig(multipartConfig);
+                }
             }
             // @WebFilter
             WebFilter wf = c.getAnnotation(WebFilter.class);
@@ -874,16 +984,34 @@ public class ServletContextImpl implements ServletContext {
             }
         }
 
-        // init servlets while find default servlet:
-        Servlet defaultServlet = null;
-        for (String name : this.servletRegistrations.keySet()) {
-            var registration = this.servletRegistrations.get(name);
-            try {
-                // 初始化 servlet
-                registration.servlet.init(registration.getServletConfig());
-                this.nameToServlets.put(name, registration.servlet);
+        List<FilterRegistrationImpl> filters = new ArrayList<>(this.filterRegistrations.values());
+        ExecutorService initExecutor = createInitExecutor();
+        try {
+            // init servlets by ascending load-on-startup, servlets with same load-on-startup are initialized in parallel,
+            // servlets without load-on-startup are initialized on first request:
+            Map<Integer, List<ServletRegistrationImpl>> groups = new TreeMap<>();
+            for (String name : new TreeSet<>(this.servletRegistrations.keySet())) {
+                var registration = this.servletRegistrations.get(name);
+                if (registration.loadOnStartup >= 0) {
+                    groups.computeIfAbsent(registration.loadOnStartup, (k) -> new ArrayList<>()).add(registration);
+                } else {
+                    logger.info("servlet {} will be initialized on first request.", name);
+                }
+            }
+            for (List<ServletRegistrationImpl> group : groups.values()) {
+                invokeAll(initExecutor, group.stream().map(registration -> (Runnable) () -> initServlet(registration)).toList());
+            }
+
+            // add mappings of initialized or lazy servlets while find default servlet:
+            Servlet defaultServlet = null;
+            for (String name : new TreeSet<>(this.servletRegistrations.keySet())) {
+                var registration = this.servletRegistrations.get(name);
+                if (registration.loadOnStartup >= 0 && !registration.initialized) {
+                    // init failed:
+                    continue;
+                }
                 for (String urlPattern : registration.getMappings()) {
-                    this.servletMappings.add(new ServletMapping(urlPattern, registration.servlet));
+                    this.servletMappings.add(new ServletMapping(name, urlPattern, registration.servlet));
                     if (urlPattern.equals("/")) {
                         if (defaultServlet == null) {
                             defaultServlet = registration.servlet;
@@ -893,57 +1021,54 @@ public class ServletContextImpl implements ServletContext {
                         }
                     }
                 }
-                registration.initialized = true;
-            } catch (ServletException e) {
-                logger.error("init servlet failed: " + name + " / " + registration.servlet.getClass().getName(), e);
             }
-        }
 
-        // 如果没有默认 servlet，并且如果启动了目录列表, 那么需要设置默认 Servlet
-        if (defaultServlet == null && config.server.webApp.fileListings) {
-            logger.info("no default servlet. auto register {}...", DefaultServlet.class.getName());
-            defaultServlet = new DefaultServlet();
-            try {
-                defaultServlet.init(new ServletConfig() {
-                    @Override
-                    public String getServletName() {
-                        return "DefaultServlet";
-                    }
+            // 如果没有默认 servlet，并且如果启动了目录列表, 那么需要设置默认 Servlet
+            if (defaultServlet == null && config.server.webApp.fileListings) {
+                logger.info("no default servlet. auto register {}...", DefaultServlet.class.getName());
+                defaultServlet = new DefaultServlet();
+                StartupProfiler.Phase servletPhase = StartupProfiler.begin("servlet-init:DefaultServlet");
+                try {
+                    defaultServlet.init(new ServletConfig() {
+                        @Override
+                        public String getServletName() {
+                            return "DefaultServlet";
+                        }
 
-                    @Override
-                    public ServletContext getServletContext() {
-                        return ServletContextImpl.this;
-                    }
+                        @Override
+                        public ServletContext getServletContext() {
+                            return ServletContextImpl.this;
+                        }
 
-                    @Override
-                    public String getInitParameter(String name) {
-                        return null;
-                    }
+                        @Override
+                        public String getInitParameter(String name) {
+                            return null;
+                        }
 
-                    @Override
-                    public Enumeration<String> getInitParameterNames() {
-                        return Collections.emptyEnumeration();
-                    }
-                });
-                this.servletMappings.add(new ServletMapping("/", defaultServlet));
-            } catch (ServletException e) {
-                logger.error("init default servlet failed.", e);
+                        @Override
+                        public Enumeration<String> getInitParameterNames() {
+                            return Collections.emptyEnumeration();
+                        }
+                    });
+                    this.servletMappings.add(new ServletMapping("DefaultServlet", "/", defaultServlet));
+                } catch (ServletException e) {
+                    logger.error("init default servlet failed.", e);
+                } finally {
+                    servletPhase.close();
+                }
+                this.defaultServlet = defaultServlet;
             }
-            this.defaultServlet = defaultServlet;
+            // 2024-09-11
+            // init filters in parallel:
+            invokeAll(initExecutor, filters.stream().map(registration -> (Runnable) () -> initFilter(registration)).toList());
+        } finally {
+            initExecutor.shutdown();
         }
-        // 2024-09-11
-        // init filters:
-        for (String name : this.filterRegistrations.keySet()) {
-            var registration = this.filterRegistrations.get(name);
-            try {
-                registration.filter.init(registration.getFilterConfig());
-                this.nameToFilters.put(name, registration.filter);
+        for (FilterRegistrationImpl registration : filters) {
+            if (registration.initialized) {
                 for (String urlPattern : registration.getUrlPatternMappings()) {
-                    this.filterMappings.add(new FilterMapping(name, urlPattern, registration.filter));
+                    this.filterMappings.add(new FilterMapping(registration.name, urlPattern, registration.filter));
                 }
-                registration.initialized = true;
-            } catch (ServletException e) {
-                logger.error("init filter failed: " + name + " / " + registration.filter.getClass().getName(), e);
             }
         }
 
@@ -967,6 +1092,94 @@ public class ServletContextImpl implements ServletContext {
         this.initialized = true;
     }
 
+    // threads to init servlets and filters, with web app class loader as context class loader:
+    ExecutorService createInitExecutor() {
+        int threads = Start.startupThreads(config);
+        AtomicInteger counter = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, (r) -> {
+            Thread t = new Thread(r, "init-" + counter.incrementAndGet());
+            t.setContextClassLoader(this.classLoader);
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    // run tasks in parallel and wait for all completed, a single task is run in current thread:
+    void invokeAll(ExecutorService executor, List<Runnable> tasks) {
+        if (tasks.size() == 1) {
+            tasks.get(0).run();
+            return;
+        }
+        List<Future<?>> futures = tasks.stream().<Future<?>>map(executor::submit).toList();
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while initializing.", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException re) {
+                    throw re;
+                }
+                throw new IllegalStateException(e.getCause());
+            }
+        }
+    }
+
+    void initServlet(ServletRegistrationImpl registration) {
+        StartupProfiler.Phase servletPhase = StartupProfiler.begin("servlet-init:" + registration.name);
+        try {
+            // 初始化 servlet
+            registration.servlet.init(registration.getServletConfig());
+            synchronized (this.nameToServlets) {
+                this.nameToServlets.put(registration.name, registration.servlet);
+            }
+            registration.initialized = true;
+        } catch (ServletException | RuntimeException e) {
+            registration.unavailable = true;
+            logger.error("init servlet failed: " + registration.name + " / " + registration.servlet.getClass().getName(), e);
+        } finally {
+            servletPhase.close();
+        }
+    }
+
+    // init servlet without load-on-startup on first request, return false if unavailable:
+    boolean initServletLazily(ServletRegistrationImpl registration) {
+        synchronized (registration) {
+            if (!registration.initialized && !registration.unavailable) {
+                logger.info("init servlet {} on first request.", registration.name);
+                try {
+                    registration.servlet.init(registration.getServletConfig());
+                } catch (ServletException | RuntimeException e) {
+                    // do not retry init on later requests:
+                    registration.unavailable = true;
+                    logger.error("init servlet failed: " + registration.name + " / " + registration.servlet.getClass().getName(), e);
+                    return false;
+                }
+                synchronized (this.nameToServlets) {
+                    this.nameToServlets.put(registration.name, registration.servlet);
+                }
+                registration.initialized = true;
+            }
+            return registration.initialized;
+        }
+    }
+
+    void initFilter(FilterRegistrationImpl registration) {
+        StartupProfiler.Phase filterPhase = StartupProfiler.begin("filter-init:" + registration.name);
+        try {
+            registration.filter.init(registration.getFilterConfig());
+            synchronized (this.nameToFilters) {
+                this.nameToFilters.put(registration.name, registration.filter);
+            }
+            registration.initialized = true;
+        } catch (ServletException | RuntimeException e) {
+            logger.error("init filter failed: " + registration.name + " / " + registration.filter.getClass().getName(), e);
+        } finally {
+            filterPhase.close();
+        }
+    }
+
     public void destroy() {
         // destroy filter and servlet:
         this.filterMappings.forEach(mapping -> {
@@ -978,6 +1191,11 @@ public class ServletContextImpl implements ServletContext {
         });
 
         this.servletMappings.forEach(mapping -> {
+            var registration = this.servletRegistrations.get(mapping.servletName);
+            if (registration != null && !registration.initialized) {
+                // lazy servlet never initialized:
+                return;
+            }
             try {
                 mapping.servlet.destroy();
             } catch (Exception e) {
@@ -987,6 +1205,10 @@ public class ServletContextImpl implements ServletContext {
 
         // notify:
         this.invokeServletContextDestroyed();
+
+        if (this.deadlineTimer != null) {
+            this.deadlineTimer.shutdown();
+        }
     }
 
 }
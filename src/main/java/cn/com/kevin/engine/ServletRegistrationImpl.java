@@ -11,8 +11,13 @@ public class ServletRegistrationImpl implements ServletRegistration.Dynamic {
     final Servlet servlet;
     final List<String> urlPatterns = new ArrayList<>(4);
     final InitParameters initParameters = new InitParameters();
+    MultipartConfigElement multipartConfig = null;
+    // negative = init on first request:
+    int loadOnStartup = -1;
 
-    boolean initialized = false;
+    volatile boolean initialized = false;
+    // init failed, requests get 503:
+    volatile boolean unavailable = false;
 
     public ServletRegistrationImpl(ServletContext servletContext, String name, Servlet servlet) {
         this.servletContext = servletContext;
@@ -47,6 +52,7 @@ public class ServletRegistrationImpl implements ServletRegistration.Dynamic {
     @Override
     public void setLoadOnStartup(int loadOnStartup) {
         checkNotInitialized("setLoadOnStartup");
+        this.loadOnStartup = loadOnStartup;
     }
 
     @Override
@@ -58,7 +64,10 @@ public class ServletRegistrationImpl implements ServletRegistration.Dynamic {
     @Override
     public void setMultipartConfig(MultipartConfigElement multipartConfigElement) {
         checkNotInitialized("setMultipartConfig");
-        throw new UnsupportedOperationException("Multipart config is not supported.");
+        if (multipartConfigElement == null) {
+            throw new IllegalArgumentException("multipartConfigElement is null.");
+        }
+        this.multipartConfig = multipartConfigElement;
     }
 
     @Override
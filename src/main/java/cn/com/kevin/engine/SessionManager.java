@@ -1,5 +1,7 @@
 package cn.com.kevin.engine;
 
+import cn.com.kevin.jfr.SessionEvent;
+import cn.com.kevin.utils.CachedClock;
 import cn.com.kevin.utils.DateUtils;
 import jakarta.servlet.http.HttpSession;
 import org.slf4j.Logger;
@@ -36,18 +38,36 @@ public class SessionManager implements Runnable {
             session = new HttpSessionImpl(servletContext, sessionId, inactiveInterval);
             sessions.put(sessionId, session);
             this.servletContext.invokeHttpSessionCreated(session);
+            sessionEvent(SessionEvent.CREATE, sessionId);
         } else {
             // Session已存在，更新最后访问时间:
-            session.lastAccessedTime = System.currentTimeMillis();
+            session.lastAccessedTime = CachedClock.currentTimeMillis();
+            session.isNew = false;
         }
 
         return session;
     }
 
+    public int getSessionCount() {
+        return this.sessions.size();
+    }
+
     // 删除Session:
     public void remove(HttpSession session) {
+        boolean expired = session.getLastAccessedTime() + session.getMaxInactiveInterval() * 1000L < CachedClock.currentTimeMillis();
         this.sessions.remove(session.getId());
         this.servletContext.invokeHttpSessionDestroyed(session);
+        sessionEvent(expired ? SessionEvent.EXPIRE : SessionEvent.INVALIDATE, session.getId());
+    }
+
+    void sessionEvent(String action, String sessionId) {
+        SessionEvent event = new SessionEvent();
+        if (event.shouldCommit()) {
+            event.action = action;
+            event.sessionIdHash = sessionId.hashCode();
+            event.activeSessions = this.sessions.size();
+            event.commit();
+        }
     }
 
     @Override
@@ -58,7 +78,7 @@ public class SessionManager implements Runnable {
             } catch (InterruptedException e){
                 break;
             }
-            long now = System.currentTimeMillis();
+            long now = CachedClock.currentTimeMillis();
             for (String sessionId : sessions.keySet()) {
                 HttpSession session = sessions.get(sessionId);
                 if (session.getLastAccessedTime() + session.getMaxInactiveInterval() * 1000L < now) {
@@ -11,6 +11,10 @@ public class AbstractMapping implements Comparable<AbstractMapping> {
         this.pattern = buildPattern(urlPattern);
     }
 
+    public String getUrlPattern() {
+        return this.url;
+    }
+
     public boolean matches(String uri) {
         return pattern.matcher(uri).matches();
     }
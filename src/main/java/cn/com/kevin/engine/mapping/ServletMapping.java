@@ -3,9 +3,12 @@ package cn.com.kevin.engine.mapping;
 import jakarta.servlet.Servlet;
 
 public class ServletMapping extends AbstractMapping {
+    public final String servletName;
     public final Servlet servlet;
-    public ServletMapping(String urlPattern, Servlet servlet) {
+
+    public ServletMapping(String servletName, String urlPattern, Servlet servlet) {
         super(urlPattern);
+        this.servletName = servletName;
         this.servlet = servlet;
     }
 }
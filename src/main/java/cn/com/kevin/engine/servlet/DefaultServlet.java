@@ -1,5 +1,8 @@
 package cn.com.kevin.engine.servlet;
 
+import cn.com.kevin.classloader.WarArchive;
+import cn.com.kevin.classloader.ZipIndex;
+import cn.com.kevin.engine.ServletContextImpl;
 import cn.com.kevin.utils.ClassPathUtils;
 import cn.com.kevin.utils.DateUtils;
 import cn.com.kevin.utils.HtmlUtils;
@@ -16,6 +19,7 @@ import java.io.*;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
@@ -43,19 +47,32 @@ public class DefaultServlet extends HttpServlet {
             resp.sendError(404, "Not Found");
             return;
         }
-        if (uri.equals("/WEB-INF") || uri.startsWith("/WEB-INF/")) {
-            // prevent access WEB-INF:
+        String normalized = normalize(uri);
+        if (normalized == null) {
+            // prevent access /abc/../../xyz:
+            logger.debug("prevent access insecure uri: {}", uri);
+            resp.sendError(404, "Not Found");
+            return;
+        }
+        if (isProtected(normalized)) {
+            // prevent access WEB-INF and META-INF:
             logger.debug("prevent access uri: {}", uri);
             resp.sendError(403, "Forbidden");
             return;
         }
-        if (uri.indexOf("/../") > 0) {
-            // prevent access /abc/../../xyz:
-            logger.debug("prevent access insecure uri: {}", uri);
-            resp.sendError(404, "Not Found");
+        uri = normalized;
+        WarArchive war = ((ServletContextImpl) getServletContext()).getWarArchive();
+        if (war != null) {
+            doGetFromWar(war, uri, resp);
             return;
         }
         String realPath = req.getServletContext().getRealPath(uri);
+        if (realPath == null) {
+            // resolved path is out of web root:
+            logger.debug("prevent access path out of web root: {}", uri);
+            resp.sendError(404, "Not Found");
+            return;
+        }
         Path path = Paths.get(realPath);
         logger.debug("try access path: {}", path);
         if (uri.endsWith("/")) {
@@ -69,7 +86,7 @@ public class DefaultServlet extends HttpServlet {
                 });
                 StringBuilder sb = new StringBuilder(4096);
                 if (!uri.equals("/")) {
-                    sb.append(tr(path.getParent(), -1, ".."));
+                    sb.append(tr("..", -1, Files.getLastModifiedTime(path.getParent()).toMillis()));
                 }
 
                 for (Path file : files) {
@@ -80,20 +97,14 @@ public class DefaultServlet extends HttpServlet {
                     } else if (Files.isRegularFile(file)) {
                         size = Files.size(file);
                     }
-                    sb.append(tr(file, size, name));
+                    sb.append(tr(name, size, Files.getLastModifiedTime(file).toMillis()));
                 }
-                String trs = sb.toString();
-                String html = this.indexTemplate.replace("${URI}", HtmlUtils.encodeHtml(uri)) //
-                        .replace("${SERVER}", getServletContext().getServerInfo()) //
-                        .replace("${TRS}", trs);
-                PrintWriter pw = resp.getWriter();
-                pw.write(html);
-                pw.flush();
+                writeIndex(uri, sb.toString(), resp);
                 return;
             }
         } else if (Files.isReadable(path) && Files.isReadable(path)) {
             logger.debug("read file: {}", path);
-            resp.setContentType(getServletContext().getMimeType(uri));
+            resp.setContentType(((ServletContextImpl) getServletContext()).getContentType(uri));
             ServletOutputStream output = resp.getOutputStream();
             try (InputStream input = new BufferedInputStream(new FileInputStream(path.toFile()))) {
                 input.transferTo(output);
@@ -104,9 +115,84 @@ public class DefaultServlet extends HttpServlet {
         resp.sendError(404, "Not Found");
     }
 
-    static String tr(Path file, long size, String name) throws IOException {
+    // serve file or list dir in war:
+    void doGetFromWar(WarArchive war, String uri, HttpServletResponse resp) throws IOException {
+        String name = uri.substring(1);
+        if (uri.endsWith("/")) {
+            if (war.isDirectory(name)) {
+                StringBuilder sb = new StringBuilder(4096);
+                long warLastModified = Files.getLastModifiedTime(war.getPath()).toMillis();
+                if (!uri.equals("/")) {
+                    sb.append(tr("..", -1, warLastModified));
+                }
+                for (String child : war.list(name)) {
+                    ZipIndex.Entry entry = war.getEntry(name + child);
+                    if (child.endsWith("/")) {
+                        sb.append(tr(child, -1, entry == null ? warLastModified : entry.getLastModified()));
+                    } else {
+                        sb.append(tr(child, entry.getSize(), entry.getLastModified()));
+                    }
+                }
+                writeIndex(uri, sb.toString(), resp);
+                return;
+            }
+        } else {
+            ZipIndex.Entry entry = war.getEntry(name);
+            if (entry != null && !entry.isDirectory()) {
+                logger.debug("read file from war: {}", entry);
+                resp.setContentType(((ServletContextImpl) getServletContext()).getContentType(uri));
+                ServletOutputStream output = resp.getOutputStream();
+                try (InputStream input = entry.openStream()) {
+                    input.transferTo(output);
+                }
+                output.flush();
+                return;
+            }
+        }
+        resp.sendError(404, "Not Found");
+    }
+
+    // resolve "." and ".." segments, or null if path goes above root:
+    static String normalize(String uri) {
+        ArrayDeque<String> segments = new ArrayDeque<>();
+        for (String segment : uri.substring(1).split("/", -1)) {
+            if (segment.equals("..")) {
+                if (segments.pollLast() == null) {
+                    return null;
+                }
+            } else if (!segment.isEmpty() && !segment.equals(".")) {
+                segments.addLast(segment);
+            }
+        }
+        StringBuilder sb = new StringBuilder(uri.length());
+        for (String segment : segments) {
+            sb.append('/').append(segment);
+        }
+        if (sb.length() == 0 || uri.endsWith("/") || uri.endsWith("/.") || uri.endsWith("/..")) {
+            sb.append('/');
+        }
+        return sb.toString();
+    }
+
+    // WEB-INF and META-INF are not served, case-insensitive as on some file systems:
+    static boolean isProtected(String normalizedUri) {
+        int n = normalizedUri.indexOf('/', 1);
+        String first = n < 0 ? normalizedUri.substring(1) : normalizedUri.substring(1, n);
+        return first.equalsIgnoreCase("WEB-INF") || first.equalsIgnoreCase("META-INF");
+    }
+
+    void writeIndex(String uri, String trs, HttpServletResponse resp) throws IOException {
+        String html = this.indexTemplate.replace("${URI}", HtmlUtils.encodeHtml(uri)) //
+                .replace("${SERVER}", getServletContext().getServerInfo()) //
+                .replace("${TRS}", trs);
+        PrintWriter pw = resp.getWriter();
+        pw.write(html);
+        pw.flush();
+    }
+
+    static String tr(String name, long size, long lastModified) {
         return "<tr><td><a href=\"" + name + "\">" + HtmlUtils.encodeHtml(name) + "</a></td><td>" + size(size) + "</td><td>"
-                + DateUtils.formatDateTimeGMT(Files.getLastModifiedTime(file).toMillis()) + "</td>";
+                + DateUtils.formatDateTimeGMT(lastModified) + "</td>";
     }
 
     static String size(long size) {
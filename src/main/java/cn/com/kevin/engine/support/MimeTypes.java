@@ -0,0 +1,84 @@
+package cn.com.kevin.engine.support;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable extension to MIME type lookup, built once from server.mime-types.
+ *
+ * Extensions are matched case-insensitively. The Content-Type header value of
+ * each type is precomputed, with charset appended for text types.
+ */
+public class MimeTypes {
+    final Map<String, String> mimeTypes;
+    final Map<String, String> contentTypes;
+    final String defaultMimeType;
+    final String defaultContentType;
+
+    /**
+     * @param mimeTypes       map of extension (e.g. ".html") to MIME type
+     * @param defaultMimeType MIME type of unknown extension
+     * @param charset         charset appended to text types
+     */
+    public MimeTypes(Map<String, String> mimeTypes, String defaultMimeType, String charset) {
+        Map<String, String> mimes = new HashMap<>();
+        Map<String, String> contents = new HashMap<>();
+        if (mimeTypes != null) {
+            for (String ext : mimeTypes.keySet()) {
+                String mime = mimeTypes.get(ext).strip();
+                String key = ext.toLowerCase(Locale.ROOT);
+                if (!key.startsWith(".")) {
+                    key = "." + key;
+                }
+                mimes.put(key, mime);
+                contents.put(key, toContentType(mime, charset));
+            }
+        }
+        this.mimeTypes = Map.copyOf(mimes);
+        this.contentTypes = Map.copyOf(contents);
+        this.defaultMimeType = defaultMimeType == null ? "application/octet-stream" : defaultMimeType;
+        this.defaultContentType = toContentType(this.defaultMimeType, charset);
+    }
+
+    public String getMimeType(String file) {
+        String ext = getExtension(file);
+        if (ext == null) {
+            return this.defaultMimeType;
+        }
+        return this.mimeTypes.getOrDefault(ext, this.defaultMimeType);
+    }
+
+    /**
+     * Get value of Content-Type header, e.g. "text/html; charset=UTF-8".
+     */
+    public String getContentType(String file) {
+        String ext = getExtension(file);
+        if (ext == null) {
+            return this.defaultContentType;
+        }
+        return this.contentTypes.getOrDefault(ext, this.defaultContentType);
+    }
+
+    // return lower-case extension with dot, or null if no extension:
+    static String getExtension(String file) {
+        int n = file.lastIndexOf('.');
+        if (n == -1 || file.indexOf('/', n) != -1) {
+            return null;
+        }
+        // toLowerCase() returns the same String if it has no upper case chars:
+        return file.substring(n).toLowerCase(Locale.ROOT);
+    }
+
+    static String toContentType(String mime, String charset) {
+        if (charset != null && isText(mime)) {
+            return mime + "; charset=" + charset;
+        }
+        return mime;
+    }
+
+    static boolean isText(String mime) {
+        return mime.startsWith("text/") || mime.endsWith("/json") || mime.endsWith("+json") || mime.endsWith("/xml")
+                || mime.endsWith("+xml") || mime.endsWith("/javascript");
+    }
+}
@@ -1,6 +1,7 @@
 package cn.com.kevin.engine.support;
 
 import cn.com.kevin.connector.HttpExchangeRequest;
+import cn.com.kevin.jfr.RequestParseEvent;
 import cn.com.kevin.utils.HttpUtils;
 
 import java.io.IOException;
@@ -43,48 +44,40 @@ public class Parameters {
 
     public Map<String, String[]> getParameterMap() {
         if (this.parameters == null) {
+            RequestParseEvent event = new RequestParseEvent();
+            event.begin();
             this.parameters = initParameters();
+            event.end();
+            if (event.shouldCommit()) {
+                event.method = this.exchangeRequest.getRequestMethod();
+                event.uri = this.exchangeRequest.getRequestURI().getPath();
+                event.kind = RequestParseEvent.PARAMETERS;
+                event.commit();
+            }
         }
         return this.parameters;
     }
 
     Map<String, String[]> initParameters() {
-        Map<String, List<String>> params = new HashMap<>();
-        String query = this.exchangeRequest.getRequestURI().getRawQuery();
-        if (query != null) {
-            params = HttpUtils.parseQuery(query, charset);
-        }
+        Map<String, String[]> params = new HashMap<>();
+        HttpUtils.parseQuery(this.exchangeRequest.getRequestURI().getRawQuery(), charset, params);
+        // request body is only read when any parameter is requested:
         if ("POST".equals(this.exchangeRequest.getRequestMethod())) {
             String value = HttpUtils.getHeader(this.exchangeRequest.getRequestHeaders(), "Content-Type");
             if (value != null && value.startsWith("application/x-www-form-urlencoded")) {
-                String requestBody;
+                byte[] requestBody;
                 try {
-                    requestBody = new String(this.exchangeRequest.getRequestBody(), charset);
+                    requestBody = this.exchangeRequest.getRequestBody();
                 } catch (IOException e) {
                     throw new UncheckedIOException(e);
                 }
-                Map<String, List<String>> postParams = HttpUtils.parseQuery(requestBody, charset);
-                // merge:
-                for (String key : postParams.keySet()) {
-                    List<String> postValues = postParams.get(key);
-                    List<String> queryValues = params.get(key);
-                    if (queryValues == null) {
-                        params.put(key, postValues);
-                    } else {
-                        queryValues.addAll(postValues);
-                    }
-                }
+                // request body may be read again by getInputStream(), so it must not be decoded in place:
+                HttpUtils.parseParameters(requestBody, 0, requestBody.length, charset, false, params);
             }
         }
         if (params.isEmpty()) {
             return Map.of();
         }
-        // convert:
-        Map<String, String[]> paramsMap = new HashMap<>();
-        for (String key : params.keySet()) {
-            List<String> values = params.get(key);
-            paramsMap.put(key, values.toArray(String[]::new));
-        }
-        return paramsMap;
+        return params;
     }
 }
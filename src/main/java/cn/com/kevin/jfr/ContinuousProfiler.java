@@ -0,0 +1,196 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Always-on profiler using JFR event streaming in-process: execution samples
+ * are attributed to the servlet mapping of the request (RequestEvent) running
+ * on the sampled thread at that time, and aggregated by stack per minute.
+ *
+ * A request event is committed when the request ends, so samples taken inside
+ * HttpConnector.handle() are kept per thread until the next request event of
+ * that thread, however long the request runs. Pending samples are bounded by
+ * count; on overflow the oldest are attributed to NO_REQUEST.
+ *
+ * Aggregated stacks of the last N minutes are exported in collapsed-stack
+ * format ("frame1;frame2;frame3 count" per line, root first), which can be
+ * rendered by flame graph tools such as flamegraph.pl or speedscope.
+ */
+public class ContinuousProfiler implements AutoCloseable {
+    final Logger logger = LoggerFactory.getLogger(getClass());
+
+    // samples outside any request, e.g. background threads:
+    public static final String NO_REQUEST = "(none)";
+
+    static final long MINUTE = 60_000;
+    // max samples waiting for request event, per thread and in total:
+    static final int MAX_PENDING_PER_THREAD = 10_000;
+    static final int MAX_PENDING = 100_000;
+    // frame of request processing in collapsed stack:
+    static final String REQUEST_FRAME = "cn.com.kevin.connector.HttpConnector.handle";
+
+    final int windowMinutes;
+    final RecordingStream stream;
+    // ring of per-minute buckets, written by stream thread only:
+    final AtomicReferenceArray<Bucket> buckets;
+    // thread id -> samples waiting for its request event, accessed by stream thread only:
+    final Map<Long, ArrayDeque<Sample>> pending = new HashMap<>();
+    int pendingCount = 0;
+
+    record Sample(long time, String stack) {
+    }
+
+    static class Bucket {
+        final long minute;
+        // mapping -> collapsed stack -> samples:
+        final Map<String, Map<String, LongAdder>> stacks = new ConcurrentHashMap<>();
+
+        Bucket(long minute) {
+            this.minute = minute;
+        }
+    }
+
+    /**
+     * Start profiling with sampling period in milliseconds, and keep samples
+     * of the last window minutes.
+     */
+    public ContinuousProfiler(int periodMillis, int windowMinutes) {
+        this.windowMinutes = Math.max(1, windowMinutes);
+        // one more bucket for the current minute:
+        this.buckets = new AtomicReferenceArray<>(this.windowMinutes + 1);
+        this.stream = new RecordingStream();
+        this.stream.enable("jdk.ExecutionSample").withPeriod(Duration.ofMillis(periodMillis)).withStackTrace();
+        this.stream.enable(RequestEvent.class).withoutStackTrace().withoutThreshold();
+        this.stream.setMaxAge(Duration.ofSeconds(10));
+        this.stream.onEvent("jdk.ExecutionSample", this::onSample);
+        this.stream.onEvent("cn.com.kevin.Request", this::onRequest);
+        this.stream.startAsync();
+        logger.info("continuous profiler started: sample every {} ms, keep {} minutes.", periodMillis, this.windowMinutes);
+    }
+
+    void onSample(RecordedEvent event) {
+        RecordedThread thread = event.getThread("sampledThread");
+        RecordedStackTrace stackTrace = event.getStackTrace();
+        if (thread == null || stackTrace == null) {
+            return;
+        }
+        Sample sample = new Sample(event.getStartTime().toEpochMilli(), collapse(stackTrace));
+        if (!sample.stack.contains(REQUEST_FRAME)) {
+            // not processing request, e.g. background threads:
+            add(sample, NO_REQUEST);
+            return;
+        }
+        ArrayDeque<Sample> samples = this.pending.computeIfAbsent(thread.getJavaThreadId(), id -> new ArrayDeque<>());
+        samples.addLast(sample);
+        this.pendingCount++;
+        if (samples.size() > MAX_PENDING_PER_THREAD || this.pendingCount > MAX_PENDING) {
+            add(samples.pollFirst(), NO_REQUEST);
+            this.pendingCount--;
+        }
+    }
+
+    void onRequest(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        ArrayDeque<Sample> samples = thread == null ? null : this.pending.get(thread.getJavaThreadId());
+        if (samples == null) {
+            return;
+        }
+        long start = event.getStartTime().toEpochMilli();
+        long end = event.getEndTime().toEpochMilli();
+        String mapping = event.getString("mapping");
+        // events are ordered by commit time, so samples of this request arrived before:
+        while (!samples.isEmpty() && samples.peekFirst().time <= end) {
+            Sample sample = samples.pollFirst();
+            this.pendingCount--;
+            // samples before start are taken in handle() but outside request event, e.g. metrics endpoint:
+            add(sample, sample.time >= start ? (mapping == null ? "(no mapping)" : mapping) : NO_REQUEST);
+        }
+        if (samples.isEmpty()) {
+            // thread may not be reused:
+            this.pending.remove(thread.getJavaThreadId());
+        }
+    }
+
+    void add(Sample sample, String mapping) {
+        long minute = sample.time / MINUTE;
+        int index = (int) (minute % this.buckets.length());
+        Bucket bucket = this.buckets.get(index);
+        if (bucket == null || bucket.minute != minute) {
+            if (bucket != null && bucket.minute > minute) {
+                // too old:
+                return;
+            }
+            bucket = new Bucket(minute);
+            this.buckets.set(index, bucket);
+        }
+        bucket.stacks.computeIfAbsent(mapping, m -> new ConcurrentHashMap<>())
+                .computeIfAbsent(sample.stack, s -> new LongAdder()).increment();
+    }
+
+    /**
+     * Export collapsed stacks of the last minutes (up to window). If mapping
+     * is null, stacks of all mappings are exported with mapping as root frame.
+     */
+    public String collapsedStacks(String mapping, int minutes) {
+        long now = Instant.now().toEpochMilli() / MINUTE;
+        long from = now - Math.max(1, Math.min(minutes, this.windowMinutes)) + 1;
+        Map<String, Long> merged = new TreeMap<>();
+        for (int i = 0; i < this.buckets.length(); i++) {
+            Bucket bucket = this.buckets.get(i);
+            if (bucket == null || bucket.minute < from || bucket.minute > now) {
+                continue;
+            }
+            for (Map.Entry<String, Map<String, LongAdder>> entry : bucket.stacks.entrySet()) {
+                if (mapping != null && !mapping.equals(entry.getKey())) {
+                    continue;
+                }
+                String prefix = mapping == null ? entry.getKey().replace(';', ':') + ";" : "";
+                for (Map.Entry<String, LongAdder> stack : entry.getValue().entrySet()) {
+                    merged.merge(prefix + stack.getKey(), stack.getValue().sum(), Long::sum);
+                }
+            }
+        }
+        StringBuilder sb = new StringBuilder(merged.size() * 256);
+        merged.forEach((stack, count) -> sb.append(stack).append(' ').append(count).append('\n'));
+        return sb.toString();
+    }
+
+    // root first, frames separated by ';':
+    static String collapse(RecordedStackTrace stackTrace) {
+        List<RecordedFrame> frames = stackTrace.getFrames();
+        StringBuilder sb = new StringBuilder(frames.size() * 48);
+        if (stackTrace.isTruncated()) {
+            sb.append("...");
+        }
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            RecordedFrame frame = frames.get(i);
+            if (sb.length() > 0) {
+                sb.append(';');
+            }
+            sb.append(frame.getMethod().getType().getName()).append('.').append(frame.getMethod().getName());
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public void close() {
+        this.stream.close();
+    }
+}
@@ -0,0 +1,31 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Filter.doFilter() of a filter chain, including filters and servlet after it.
+ */
+@Name("cn.com.kevin.Filter")
+@Label("Filter")
+@Category({ "Kevin Tomcat", "Servlet" })
+@Description("Filter execution, including the rest of the filter chain.")
+@StackTrace(false)
+public class FilterEvent extends Event {
+    @Label("URI")
+    public String uri;
+
+    @Label("Servlet Mapping")
+    public String mapping;
+
+    @Label("Filter")
+    public String filter;
+
+    @Label("Position")
+    @Description("Index of filter in chain, starts from 0.")
+    public int position;
+}
@@ -0,0 +1,30 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Request processed by HttpConnector, from handle() to response cleanup.
+ */
+@Name("cn.com.kevin.Request")
+@Label("HTTP Request")
+@Category({ "Kevin Tomcat", "HTTP" })
+@Description("Request handled by the connector.")
+@StackTrace(false)
+public class RequestEvent extends Event {
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Servlet Mapping")
+    public String mapping;
+
+    @Label("Status")
+    public int status;
+}
@@ -0,0 +1,32 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Lazy parsing of request parameters (query and form body) or multipart
+ * parts, including reading the body. Request line and headers are parsed by
+ * the JDK HTTP server before handle(), so they are not covered.
+ */
+@Name("cn.com.kevin.RequestParse")
+@Label("HTTP Request Parse")
+@Category({ "Kevin Tomcat", "HTTP" })
+@Description("Request parameters or multipart parts parsed on first access.")
+@StackTrace(false)
+public class RequestParseEvent extends Event {
+    public static final String PARAMETERS = "parameters";
+    public static final String MULTIPART = "multipart";
+
+    @Label("Method")
+    public String method;
+
+    @Label("URI")
+    public String uri;
+
+    @Label("Kind")
+    public String kind;
+}
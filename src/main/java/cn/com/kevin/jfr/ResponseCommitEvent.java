@@ -0,0 +1,25 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Response headers sent, after which status and headers cannot be changed.
+ */
+@Name("cn.com.kevin.ResponseCommit")
+@Label("Response Commit")
+@Category({ "Kevin Tomcat", "HTTP" })
+@Description("Response status and headers sent.")
+public class ResponseCommitEvent extends Event {
+    @Label("Status")
+    public int status;
+
+    @Label("Content Length")
+    @Description("Response length, 0 = chunked, -1 = no body.")
+    @DataAmount
+    public long contentLength;
+}
@@ -0,0 +1,30 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Servlet.service() at the end of a filter chain.
+ */
+@Name("cn.com.kevin.Servlet")
+@Label("Servlet Service")
+@Category({ "Kevin Tomcat", "Servlet" })
+@Description("Servlet service() execution.")
+@StackTrace(false)
+public class ServletEvent extends Event {
+    @Label("URI")
+    public String uri;
+
+    @Label("Servlet Mapping")
+    public String mapping;
+
+    @Label("Servlet")
+    public String servlet;
+
+    @Label("Status")
+    public int status;
+}
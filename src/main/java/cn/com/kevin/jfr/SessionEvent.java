@@ -0,0 +1,32 @@
+package cn.com.kevin.jfr;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Session created, invalidated or expired.
+ */
+@Name("cn.com.kevin.Session")
+@Label("Session")
+@Category({ "Kevin Tomcat", "Session" })
+@Description("Session created, invalidated or expired.")
+@StackTrace(false)
+public class SessionEvent extends Event {
+    public static final String CREATE = "create";
+    public static final String INVALIDATE = "invalidate";
+    public static final String EXPIRE = "expire";
+
+    @Label("Action")
+    public String action;
+
+    @Label("Session ID Hash")
+    @Description("Hash of session ID, so recordings do not contain session IDs.")
+    public int sessionIdHash;
+
+    @Label("Active Sessions")
+    public int activeSessions;
+}
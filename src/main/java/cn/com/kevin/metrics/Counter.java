@@ -0,0 +1,22 @@
+package cn.com.kevin.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Monotonic counter backed by a striped LongAdder.
+ */
+public class Counter {
+    final LongAdder adder = new LongAdder();
+
+    public void increment() {
+        this.adder.increment();
+    }
+
+    public void add(long n) {
+        this.adder.add(n);
+    }
+
+    public long get() {
+        return this.adder.sum();
+    }
+}
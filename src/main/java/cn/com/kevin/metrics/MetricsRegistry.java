@@ -0,0 +1,140 @@
+package cn.com.kevin.metrics;
+
+import cn.com.kevin.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.LongSupplier;
+
+/**
+ * Registry of named metrics with labels, exported in Prometheus text format.
+ *
+ * Looking up a metric builds its label string, so callers on the hot path
+ * should keep the returned Counter or LatencyHistogram instead of looking it
+ * up for each request. Recording is lock-free.
+ *
+ * <pre>
+ * Counter c = registry.counter("http_requests_total", "Total requests.", "mapping", "/api/*");
+ * c.increment();
+ * </pre>
+ */
+public class MetricsRegistry {
+
+    static final double[] QUANTILES = { 0.5, 0.9, 0.99, 0.999 };
+
+    // sorted by name, so export is stable:
+    final Map<String, Family> families = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get or create counter, labels are name-value pairs.
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return (Counter) family(name, help, "counter").metrics.computeIfAbsent(labelsOf(labels), k -> new Counter());
+    }
+
+    /**
+     * Get or create histogram of latencies in microseconds, exported as
+     * summary in seconds with quantiles 0.5, 0.9, 0.99 and 0.999 since start.
+     */
+    public LatencyHistogram histogram(String name, String help, String... labels) {
+        return (LatencyHistogram) family(name, help, "summary").metrics.computeIfAbsent(labelsOf(labels),
+                k -> new LatencyHistogram());
+    }
+
+    /**
+     * Register gauge which value is read by supplier when exported.
+     */
+    public void gauge(String name, String help, LongSupplier supplier, String... labels) {
+        family(name, help, "gauge").metrics.put(labelsOf(labels), supplier);
+    }
+
+    /**
+     * Export all metrics in Prometheus text format 0.0.4.
+     */
+    public String scrape() {
+        StringBuilder sb = new StringBuilder(4096);
+        for (Family family : this.families.values()) {
+            sb.append("# HELP ").append(family.name).append(' ').append(family.help).append('\n');
+            sb.append("# TYPE ").append(family.name).append(' ').append(family.type).append('\n');
+            for (Map.Entry<String, Object> entry : family.metrics.entrySet()) {
+                String labels = entry.getKey();
+                Object metric = entry.getValue();
+                if (metric instanceof Counter counter) {
+                    appendSample(sb, family.name, labels, null, counter.get());
+                } else if (metric instanceof LongSupplier supplier) {
+                    appendSample(sb, family.name, labels, null, supplier.getAsLong());
+                } else if (metric instanceof LatencyHistogram histogram) {
+                    for (double q : QUANTILES) {
+                        appendSample(sb, family.name, labels, "quantile=\"" + q + "\"", histogram.getPercentile(q * 100) / 1e6);
+                    }
+                    appendSample(sb, family.name + "_sum", labels, null, histogram.getSum() / 1e6);
+                    appendSample(sb, family.name + "_count", labels, null, histogram.getCount());
+                }
+            }
+        }
+        return sb.toString();
+    }
+
+    Family family(String name, String help, String type) {
+        Family family = this.families.computeIfAbsent(name, n -> new Family(n, help, type));
+        if (!family.type.equals(type)) {
+            throw new IllegalArgumentException("Metric " + name + " is already registered as " + family.type);
+        }
+        return family;
+    }
+
+    static void appendSample(StringBuilder sb, String name, String labels, String extraLabel, Object value) {
+        sb.append(name);
+        if (!labels.isEmpty() || extraLabel != null) {
+            sb.append('{').append(labels);
+            if (extraLabel != null) {
+                if (!labels.isEmpty()) {
+                    sb.append(',');
+                }
+                sb.append(extraLabel);
+            }
+            sb.append('}');
+        }
+        sb.append(' ').append(value).append('\n');
+    }
+
+    // e.g. ("mapping", "/api/*", "status", "200") => mapping="/api/*",status="200"
+    static String labelsOf(String... labels) {
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("Labels must be name-value pairs.");
+        }
+        StringBuilder sb = new StringBuilder(32);
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append(labels[i]).append("=\"");
+            String value = labels[i + 1];
+            for (int j = 0; j < value.length(); j++) {
+                char ch = value.charAt(j);
+                switch (ch) {
+                    case '\\' -> sb.append("\\\\");
+                    case '"' -> sb.append("\\\"");
+                    case '\n' -> sb.append("\\n");
+                    default -> sb.append(ch);
+                }
+            }
+            sb.append('"');
+        }
+        return sb.toString();
+    }
+
+    static class Family {
+        final String name;
+        final String help;
+        final String type;
+        // label string -> Counter, LatencyHistogram or LongSupplier, sorted by labels:
+        final Map<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+        Family(String name, String help, String type) {
+            this.name = name;
+            this.help = help;
+            this.type = type;
+        }
+    }
+}
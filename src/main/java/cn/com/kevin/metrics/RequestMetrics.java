@@ -0,0 +1,66 @@
+package cn.com.kevin.metrics;
+
+import cn.com.kevin.utils.LatencyHistogram;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Request metrics per servlet mapping: latency, status codes, bytes in and
+ * out. Metrics of a mapping are created at its first request and cached, so
+ * recording a request does not build label strings.
+ */
+public class RequestMetrics {
+
+    // mapping of requests not matched by any servlet:
+    public static final String NO_MAPPING = "none";
+
+    final MetricsRegistry registry;
+    final Map<String, MappingMetrics> mappings = new ConcurrentHashMap<>();
+
+    public RequestMetrics(MetricsRegistry registry) {
+        this.registry = registry;
+    }
+
+    public void record(String mapping, int status, long nanos, long bytesIn, long bytesOut) {
+        MappingMetrics m = this.mappings.get(mapping == null ? NO_MAPPING : mapping);
+        if (m == null) {
+            m = this.mappings.computeIfAbsent(mapping == null ? NO_MAPPING : mapping, MappingMetrics::new);
+        }
+        m.latency.recordNanos(nanos);
+        m.bytesIn.add(bytesIn);
+        m.bytesOut.add(bytesOut);
+        m.status(status).increment();
+    }
+
+    class MappingMetrics {
+        final String mapping;
+        final LatencyHistogram latency;
+        final Counter bytesIn;
+        final Counter bytesOut;
+        // status code 0 ~ 599 -> counter:
+        final AtomicReferenceArray<Counter> statuses = new AtomicReferenceArray<>(600);
+
+        MappingMetrics(String mapping) {
+            this.mapping = mapping;
+            this.latency = registry.histogram("http_request_duration_seconds", "Request latency by servlet mapping.",
+                    "mapping", mapping);
+            this.bytesIn = registry.counter("http_request_bytes_total", "Request body bytes read by servlet mapping.",
+                    "mapping", mapping);
+            this.bytesOut = registry.counter("http_response_bytes_total", "Response body bytes by servlet mapping.",
+                    "mapping", mapping);
+        }
+
+        Counter status(int status) {
+            int index = status >= 0 && status < 600 ? status : 0;
+            Counter counter = this.statuses.get(index);
+            if (counter == null) {
+                counter = registry.counter("http_responses_total", "Responses by servlet mapping and status code.",
+                        "mapping", this.mapping, "status", String.valueOf(index));
+                this.statuses.set(index, counter);
+            }
+            return counter;
+        }
+    }
+}
@@ -2,7 +2,9 @@ package cn.com.kevin.utils;
 
 import jakarta.servlet.DispatcherType;
 import jakarta.servlet.Filter;
+import jakarta.servlet.MultipartConfigElement;
 import jakarta.servlet.Servlet;
+import jakarta.servlet.annotation.MultipartConfig;
 import jakarta.servlet.annotation.WebFilter;
 import jakarta.servlet.annotation.WebInitParam;
 import jakarta.servlet.annotation.WebServlet;
@@ -44,6 +46,22 @@ public class AnnoUtils {
         return initParamsToMap(w.initParams());
     }
 
+    public static int getServletLoadOnStartup(Class<? extends Servlet> clazz) {
+        WebServlet w = clazz.getAnnotation(WebServlet.class);
+        if (w == null) {
+            return -1;
+        }
+        return w.loadOnStartup();
+    }
+
+    public static MultipartConfigElement getServletMultipartConfig(Class<? extends Servlet> clazz) {
+        MultipartConfig mc = clazz.getAnnotation(MultipartConfig.class);
+        if (mc == null) {
+            return null;
+        }
+        return new MultipartConfigElement(mc);
+    }
+
     public static String[] getServletUrlPatterns(Class<? extends Servlet> clazz) {
         WebServlet w = clazz.getAnnotation(WebServlet.class);
         if (w == null) {
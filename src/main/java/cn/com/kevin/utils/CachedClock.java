@@ -0,0 +1,51 @@
+package cn.com.kevin.utils;
+
+/**
+ * Coarse-grained clock shared by the hot path.
+ *
+ * A daemon ticker thread refreshes a volatile timestamp every {@code resolution}
+ * milliseconds, so readers get the current time with a single volatile read
+ * instead of calling System.currentTimeMillis(). Before {@link #start(int)} is
+ * called (or after {@link #stop()}), the clock falls back to the system clock.
+ */
+public class CachedClock {
+    // 0 means the ticker is not running:
+    static volatile long now = 0;
+    static Thread ticker = null;
+
+    public static synchronized void start(int resolutionMillis) {
+        if (resolutionMillis <= 0) {
+            throw new IllegalArgumentException("Invalid clock resolution: " + resolutionMillis);
+        }
+        if (ticker != null) {
+            return;
+        }
+        now = System.currentTimeMillis();
+        Thread t = new Thread(() -> {
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    Thread.sleep(resolutionMillis);
+                } catch (InterruptedException e) {
+                    break;
+                }
+                now = System.currentTimeMillis();
+            }
+        }, "Cached-Clock-Ticker");
+        t.setDaemon(true);
+        t.start();
+        ticker = t;
+    }
+
+    public static synchronized void stop() {
+        if (ticker != null) {
+            ticker.interrupt();
+            ticker = null;
+            now = 0;
+        }
+    }
+
+    public static long currentTimeMillis() {
+        long t = now;
+        return t != 0 ? t : System.currentTimeMillis();
+    }
+}
@@ -1,6 +1,8 @@
 package cn.com.kevin.utils;
 
+import java.time.DateTimeException;
 import java.time.Instant;
+import java.time.LocalDate;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
 import java.time.format.DateTimeFormatter;
@@ -8,14 +10,133 @@ import java.time.format.DateTimeFormatter;
 public class DateUtils {
     static final ZoneId GMT = ZoneId.of("Z");
 
+    static final String[] DAYS = { "Mon", "Tue", "Wed", "Thu", "Fri", "Sat", "Sun" };
+    static final String[] MONTHS = { "Jan", "Feb", "Mar", "Apr", "May", "Jun", "Jul", "Aug", "Sep", "Oct", "Nov", "Dec" };
+
+    // length of IMF-fixdate, e.g. "Sun, 06 Nov 1994 08:49:37 GMT":
+    static final int IMF_FIXDATE_LENGTH = 29;
+
+    // 当前秒的格式化结果, 同一秒内的调用直接复用:
+    static volatile CachedDate cachedDate = new CachedDate(Long.MIN_VALUE, "");
+
     public static long parseDateTimeGMT(String s) {
+        long ts = parseImfFixdate(s);
+        if (ts != Long.MIN_VALUE) {
+            return ts;
+        }
+        // obsolete formats or other offsets:
         ZonedDateTime zdt = ZonedDateTime.parse(s, DateTimeFormatter.RFC_1123_DATE_TIME);
         return zdt.toInstant().toEpochMilli();
     }
 
     public static String formatDateTimeGMT(long ts) {
-        ZonedDateTime zdt = ZonedDateTime.ofInstant(Instant.ofEpochMilli(ts), GMT);
-        return zdt.format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        long epochSecond = Math.floorDiv(ts, 1000L);
+        CachedDate cached = cachedDate;
+        if (cached.epochSecond == epochSecond) {
+            return cached.text;
+        }
+        if (epochSecond != Math.floorDiv(CachedClock.currentTimeMillis(), 1000L)) {
+            // other timestamps, e.g. file last modified time, do not replace cache:
+            return format(epochSecond);
+        }
+        return cachedDate(epochSecond).text;
+    }
+
+    // only called with current second:
+    static CachedDate cachedDate(long epochSecond) {
+        CachedDate cached = cachedDate;
+        if (cached.epochSecond == epochSecond) {
+            return cached;
+        }
+        cached = new CachedDate(epochSecond, format(epochSecond));
+        cachedDate = cached;
+        return cached;
+    }
+
+    static String format(long epochSecond) {
+        long epochDay = Math.floorDiv(epochSecond, 86400L);
+        int secondOfDay = (int) Math.floorMod(epochSecond, 86400L);
+        LocalDate date = LocalDate.ofEpochDay(epochDay);
+        int year = date.getYear();
+        if (year < 0 || year > 9999) {
+            ZonedDateTime zdt = ZonedDateTime.ofInstant(Instant.ofEpochSecond(epochSecond), GMT);
+            return zdt.format(DateTimeFormatter.RFC_1123_DATE_TIME);
+        }
+        char[] buf = new char[IMF_FIXDATE_LENGTH];
+        DAYS[date.getDayOfWeek().getValue() - 1].getChars(0, 3, buf, 0);
+        buf[3] = ',';
+        buf[4] = ' ';
+        put2(buf, 5, date.getDayOfMonth());
+        buf[7] = ' ';
+        MONTHS[date.getMonthValue() - 1].getChars(0, 3, buf, 8);
+        buf[11] = ' ';
+        put2(buf, 12, year / 100);
+        put2(buf, 14, year % 100);
+        buf[16] = ' ';
+        put2(buf, 17, secondOfDay / 3600);
+        buf[19] = ':';
+        put2(buf, 20, secondOfDay / 60 % 60);
+        buf[22] = ':';
+        put2(buf, 23, secondOfDay % 60);
+        buf[25] = ' ';
+        buf[26] = 'G';
+        buf[27] = 'M';
+        buf[28] = 'T';
+        return new String(buf);
+    }
+
+    /**
+     * Parse IMF-fixdate without DateTimeFormatter, return Long.MIN_VALUE if the
+     * value is not in that exact format.
+     */
+    static long parseImfFixdate(String s) {
+        if (s.length() != IMF_FIXDATE_LENGTH || s.charAt(3) != ',' || s.charAt(4) != ' ' || s.charAt(7) != ' '
+                || s.charAt(11) != ' ' || s.charAt(16) != ' ' || s.charAt(19) != ':' || s.charAt(22) != ':'
+                || !s.endsWith(" GMT")) {
+            return Long.MIN_VALUE;
+        }
+        int day = get2(s, 5);
+        int month = parseMonth(s);
+        int year = get2(s, 12) * 100 + get2(s, 14);
+        int hour = get2(s, 17);
+        int minute = get2(s, 20);
+        int second = get2(s, 23);
+        if (day < 0 || month < 0 || year < 0 || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0
+                || second > 59) {
+            return Long.MIN_VALUE;
+        }
+        long epochDay;
+        try {
+            epochDay = LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return Long.MIN_VALUE;
+        }
+        return (epochDay * 86400L + hour * 3600L + minute * 60L + second) * 1000L;
+    }
+
+    static int parseMonth(String s) {
+        for (int i = 0; i < MONTHS.length; i++) {
+            if (s.regionMatches(8, MONTHS[i], 0, 3)) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    static void put2(char[] buf, int offset, int n) {
+        buf[offset] = (char) ('0' + n / 10);
+        buf[offset + 1] = (char) ('0' + n % 10);
+    }
+
+    static int get2(String s, int offset) {
+        int d1 = s.charAt(offset) - '0';
+        int d2 = s.charAt(offset + 1) - '0';
+        if (d1 < 0 || d1 > 9 || d2 < 0 || d2 > 9) {
+            return -1;
+        }
+        return d1 * 10 + d2;
     }
 
+    record CachedDate(long epochSecond, String text) {
+    }
 }
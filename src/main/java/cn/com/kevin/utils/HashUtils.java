@@ -0,0 +1,44 @@
+package cn.com.kevin.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+public class HashUtils {
+    /**
+     * Compute SHA-256 of stream as lower-case hex string. The stream is read to
+     * end but not closed.
+     */
+    public static String sha256(InputStream input) throws IOException {
+        MessageDigest md = newSha256();
+        byte[] buffer = new byte[65536];
+        int n;
+        while ((n = input.read(buffer)) != -1) {
+            md.update(buffer, 0, n);
+        }
+        return HexFormat.of().formatHex(md.digest());
+    }
+
+    public static String sha256(Path file) throws IOException {
+        try (InputStream input = Files.newInputStream(file)) {
+            return sha256(input);
+        }
+    }
+
+    public static String sha256(String text) {
+        return HexFormat.of().formatHex(newSha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
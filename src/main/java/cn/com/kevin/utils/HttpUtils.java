@@ -3,38 +3,122 @@ package cn.com.kevin.utils;
 import com.sun.net.httpserver.Headers;
 import jakarta.servlet.http.Cookie;
 
-import java.net.URLDecoder;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.regex.Pattern;
 
 public class HttpUtils {
-    static final Pattern QUERY_SPLIT = Pattern.compile("\\&");
-
     public static Map<String, List<String>> parseQuery(String query, Charset charset) {
         if (query == null || query.isEmpty()) {
             return Map.of();
         }
-        String[] ss = QUERY_SPLIT.split(query);
+        Map<String, String[]> params = new HashMap<>();
+        parseQuery(query, charset, params);
         Map<String, List<String>> map = new HashMap<>();
-        for (String s : ss) {
-            int n = s.indexOf('=');
-            if (n >= 1) {
-                String key = s.substring(0, n);
-                String value = s.substring(n + 1);
-                List<String> exist = map.get(key);
-                if (exist == null) {
-                    exist = new ArrayList<>(4);
-                    map.put(key, exist);
+        for (String key : params.keySet()) {
+            map.put(key, new ArrayList<>(Arrays.asList(params.get(key))));
+        }
+        return map;
+    }
+
+    /**
+     * Parse a raw (still percent-encoded) query string and add the decoded
+     * parameters to the given map.
+     */
+    public static void parseQuery(String query, Charset charset, Map<String, String[]> map) {
+        if (query == null || query.isEmpty()) {
+            return;
+        }
+        // raw query only contains ASCII (or bytes read as ISO-8859-1 by the connector):
+        byte[] data = query.getBytes(StandardCharsets.ISO_8859_1);
+        parseParameters(data, 0, data.length, charset, true, map);
+    }
+
+    /**
+     * Parse application/x-www-form-urlencoded data in a single pass and add the
+     * decoded parameters to the given map.
+     *
+     * Names and values without '%' or '+' are converted to String directly.
+     * Others are decoded in place when mutable is true, otherwise into a scratch
+     * buffer, so the data is never split or copied per pair.
+     *
+     * @param data    the raw bytes
+     * @param offset  start offset of data
+     * @param length  length of data
+     * @param charset charset of decoded bytes
+     * @param mutable whether data can be overwritten while decoding
+     * @param map     parameters map which values are appended to
+     */
+    public static void parseParameters(byte[] data, int offset, int length, Charset charset, boolean mutable, Map<String, String[]> map) {
+        final int end = offset + length;
+        byte[] scratch = mutable ? data : null;
+        int start = offset;
+        while (start < end) {
+            int eq = -1;
+            boolean nameEncoded = false;
+            boolean valueEncoded = false;
+            int pos = start;
+            for (; pos < end; pos++) {
+                byte b = data[pos];
+                if (b == '&') {
+                    break;
+                }
+                if (b == '=' && eq == -1) {
+                    eq = pos;
+                } else if (b == '%' || b == '+') {
+                    if (eq == -1) {
+                        nameEncoded = true;
+                    } else {
+                        valueEncoded = true;
+                    }
                 }
-                exist.add(URLDecoder.decode(value, charset));
             }
+            // only name=value with non-empty name is accepted:
+            if (eq > start) {
+                if ((nameEncoded || valueEncoded) && scratch == null) {
+                    scratch = new byte[length];
+                }
+                String name = decode(data, start, eq, nameEncoded, charset, scratch, mutable ? start : 0);
+                String value = decode(data, eq + 1, pos, valueEncoded, charset, scratch, mutable ? eq + 1 : 0);
+                String[] values = map.get(name);
+                if (values == null) {
+                    values = new String[] { value };
+                } else {
+                    values = Arrays.copyOf(values, values.length + 1);
+                    values[values.length - 1] = value;
+                }
+                map.put(name, values);
+            }
+            start = pos + 1;
         }
-        return map;
+    }
+
+    static String decode(byte[] data, int start, int end, boolean encoded, Charset charset, byte[] target, int targetStart) {
+        if (!encoded) {
+            return new String(data, start, end - start, charset);
+        }
+        int n = targetStart;
+        for (int i = start; i < end; i++) {
+            byte b = data[i];
+            if (b == '+') {
+                b = ' ';
+            } else if (b == '%' && i + 2 < end) {
+                int hi = Character.digit(data[i + 1], 16);
+                int lo = Character.digit(data[i + 2], 16);
+                if (hi >= 0 && lo >= 0) {
+                    b = (byte) ((hi << 4) + lo);
+                    i += 2;
+                }
+            }
+            // invalid escape is kept as is:
+            target[n] = b;
+            n++;
+        }
+        return new String(target, targetStart, n - targetStart, charset);
     }
 
     public static Map<String, List<String>> parseQuery(String query) {
@@ -0,0 +1,143 @@
+package cn.com.kevin.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe histogram of latencies in microseconds. Values below 64 are
+ * exact, larger values are stored in 32 buckets per power of two, so
+ * percentiles are accurate within about 3%.
+ *
+ * Recording is lock-free: count and sum are striped LongAdders, so many
+ * threads can record without contending on a single cache line.
+ */
+public class LatencyHistogram {
+    static final int SUB_BUCKETS = 32;
+    static final int LINEAR = SUB_BUCKETS * 2;
+
+    final AtomicLongArray counts = new AtomicLongArray(LINEAR + (63 - 6) * SUB_BUCKETS);
+    final LongAdder count = new LongAdder();
+    final LongAdder sum = new LongAdder();
+    final AtomicLong max = new AtomicLong();
+
+    public void recordNanos(long nanos) {
+        record(nanos / 1000);
+    }
+
+    public void record(long micros) {
+        long value = Math.max(0, micros);
+        this.counts.incrementAndGet(indexOf(value));
+        this.count.increment();
+        this.sum.add(value);
+        if (value > this.max.get()) {
+            this.max.accumulateAndGet(value, Math::max);
+        }
+    }
+
+    /**
+     * Record value, and values of requests which should have been sent every
+     * expected interval while waiting for this one (coordinated omission
+     * correction for closed-loop load).
+     */
+    public void recordWithExpectedInterval(long micros, long expectedIntervalMicros) {
+        record(micros);
+        if (expectedIntervalMicros <= 0) {
+            return;
+        }
+        for (long missing = micros - expectedIntervalMicros; missing >= expectedIntervalMicros; missing -= expectedIntervalMicros) {
+            record(missing);
+        }
+    }
+
+    /**
+     * Copy with coordinated omission corrected, as if values were recorded by
+     * recordWithExpectedInterval().
+     */
+    public LatencyHistogram copyCorrected(long expectedIntervalMicros) {
+        LatencyHistogram copy = new LatencyHistogram();
+        for (int i = 0; i < this.counts.length(); i++) {
+            long n = this.counts.get(i);
+            long value = Math.min(highestValueOf(i), this.max.get());
+            for (long j = 0; j < n; j++) {
+                copy.recordWithExpectedInterval(value, expectedIntervalMicros);
+            }
+        }
+        return copy;
+    }
+
+    public void add(LatencyHistogram other) {
+        for (int i = 0; i < this.counts.length(); i++) {
+            this.counts.addAndGet(i, other.counts.get(i));
+        }
+        this.count.add(other.count.sum());
+        this.sum.add(other.sum.sum());
+        this.max.accumulateAndGet(other.max.get(), Math::max);
+    }
+
+    public long getCount() {
+        return this.count.sum();
+    }
+
+    /**
+     * Get sum of recorded values in microseconds.
+     */
+    public long getSum() {
+        return this.sum.sum();
+    }
+
+    public long getMax() {
+        return this.max.get();
+    }
+
+    public double getMean() {
+        long n = this.count.sum();
+        return n == 0 ? 0 : (double) this.sum.sum() / n;
+    }
+
+    /**
+     * Get value in microseconds at percentile, e.g. 99.9, or 0 if empty.
+     */
+    public long getPercentile(double percentile) {
+        long n = this.count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long target = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < this.counts.length(); i++) {
+            seen += this.counts.get(i);
+            if (seen >= target) {
+                return Math.min(highestValueOf(i), this.max.get());
+            }
+        }
+        return this.max.get();
+    }
+
+    /**
+     * Summary in milliseconds, e.g. "count 1000, mean 1.234 ms, p50 ... max ...".
+     */
+    public String summary() {
+        return String.format("count %d, mean %.3f ms, p50 %.3f ms, p90 %.3f ms, p99 %.3f ms, p99.9 %.3f ms, max %.3f ms",
+                getCount(), getMean() / 1000, getPercentile(50) / 1000.0, getPercentile(90) / 1000.0,
+                getPercentile(99) / 1000.0, getPercentile(99.9) / 1000.0, getMax() / 1000.0);
+    }
+
+    static int indexOf(long value) {
+        if (value < LINEAR) {
+            return (int) value;
+        }
+        // value >> shift is in [SUB_BUCKETS, LINEAR):
+        int shift = 63 - Long.numberOfLeadingZeros(value) - 5;
+        return LINEAR + (shift - 1) * SUB_BUCKETS + (int) ((value >>> shift) - SUB_BUCKETS);
+    }
+
+    static long highestValueOf(int index) {
+        if (index < LINEAR) {
+            return index;
+        }
+        int shift = (index - LINEAR) / SUB_BUCKETS + 1;
+        long sub = (index - LINEAR) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,131 @@
+package cn.com.kevin.utils;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Record time of startup phases, e.g.:
+ *
+ * <pre>
+ * StartupProfiler.Phase phase = StartupProfiler.begin("scan");
+ * try {
+ *     ...
+ * } finally {
+ *     phase.close();
+ * }
+ * </pre>
+ *
+ * Phases begun inside another phase in the same thread are nested. Times are
+ * milliseconds since JVM start.
+ */
+public class StartupProfiler {
+    // JVM start time in nanoTime():
+    static final long jvmStartNanos;
+    // milliseconds from JVM start to first use of profiler, see markMain():
+    static final long jvmToMainMillis;
+
+    static final List<Phase> phases = new ArrayList<>();
+    static final ThreadLocal<Deque<Phase>> stack = ThreadLocal.withInitial(ArrayDeque::new);
+
+    static {
+        long nowNanos = System.nanoTime();
+        long nowMillis = System.currentTimeMillis();
+        long jvmStartMillis = ProcessHandle.current().info().startInstant().map(Instant::toEpochMilli).orElse(nowMillis);
+        jvmToMainMillis = Math.max(0, nowMillis - jvmStartMillis);
+        jvmStartNanos = nowNanos - jvmToMainMillis * 1_000_000;
+    }
+
+    /**
+     * Record time from JVM start to main(), should be called first in main().
+     * Logger is not used here, so logging is not initialized too early.
+     */
+    public static void markMain() {
+        // class initialized.
+    }
+
+    public static Phase begin(String name) {
+        Deque<Phase> deque = stack.get();
+        Phase phase = new Phase(name, Thread.currentThread().getName(), deque.size(), sinceJvmStart());
+        deque.push(phase);
+        synchronized (phases) {
+            phases.add(phase);
+        }
+        return phase;
+    }
+
+    public static List<Phase> getPhases() {
+        synchronized (phases) {
+            return List.copyOf(phases);
+        }
+    }
+
+    /**
+     * Log startup report, and write it as JSON if file is not null.
+     */
+    public static void report(Path jsonFile) {
+        long total = sinceJvmStart();
+        List<Phase> list = getPhases();
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(String.format("startup report: ready in %d ms since JVM start, %d ms JVM to main.", total, jvmToMainMillis));
+        for (Phase phase : list) {
+            sb.append(String.format("%n  %6d ms %6d ms  %s%s [%s]", phase.start, phase.duration, "  ".repeat(phase.depth), phase.name, phase.thread));
+        }
+        Logger logger = LoggerFactory.getLogger(StartupProfiler.class);
+        logger.info(sb.toString());
+        if (jsonFile != null) {
+            Map<String, Object> report = new LinkedHashMap<>();
+            report.put("jvmToMain", jvmToMainMillis);
+            report.put("total", total);
+            report.put("phases", list);
+            try {
+                new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(jsonFile.toFile(), report);
+                logger.info("write startup report to {}", jsonFile);
+            } catch (IOException e) {
+                logger.warn("write startup report {} failed: {}", jsonFile, e.getMessage());
+            }
+        }
+    }
+
+    static long sinceJvmStart() {
+        return (System.nanoTime() - jvmStartNanos) / 1_000_000;
+    }
+
+    public static class Phase implements AutoCloseable {
+        public final String name;
+        public final String thread;
+        public final int depth;
+        // milliseconds since JVM start:
+        public final long start;
+        // -1 if not ended:
+        public long duration = -1;
+
+        Phase(String name, String thread, int depth, long start) {
+            this.name = name;
+            this.thread = thread;
+            this.depth = depth;
+            this.start = start;
+        }
+
+        @Override
+        public void close() {
+            this.duration = sinceJvmStart() - this.start;
+            Deque<Phase> deque = stack.get();
+            deque.remove(this);
+            if (deque.isEmpty()) {
+                stack.remove();
+            }
+        }
+    }
+}